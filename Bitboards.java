@@ -0,0 +1,213 @@
+package chess;
+
+public final class Bitboards {
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_1 = 0xFFL;
+    public static final long RANK_8 = RANK_1 << 56;
+    public static final long LIGHT_SQUARES = 0x55AA55AA55AA55AAL;
+
+    private static final int[][] KNIGHT_OFFSETS = { { 1, 2 }, { 2, 1 }, { 2, -1 }, { 1, -2 }, { -1, -2 }, { -2, -1 },
+            { -2, 1 }, { -1, 2 } };
+    private static final int[][] KING_OFFSETS = { { 1, 0 }, { 1, 1 }, { 0, 1 }, { -1, 1 }, { -1, 0 }, { -1, -1 },
+            { 0, -1 }, { 1, -1 } };
+    private static final int[][] WHITE_PAWN_OFFSETS = { { 1, -1 }, { 1, 1 } };
+    private static final int[][] BLACK_PAWN_OFFSETS = { { -1, -1 }, { -1, 1 } };
+    private static final int[][] ROOK_DIRECTIONS = { { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 } };
+    private static final int[][] BISHOP_DIRECTIONS = { { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_TABLE = new long[64][];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    // per-rank seeds that find a working magic for every square quickly
+    private static final long[] MAGIC_SEEDS = { 728, 10316, 55013, 32803, 12281, 15100, 16645, 255 };
+
+    private static long seed;
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = offsetAttacks(square, KNIGHT_OFFSETS);
+            KING_ATTACKS[square] = offsetAttacks(square, KING_OFFSETS);
+            PAWN_ATTACKS[Piece.WHITE][square] = offsetAttacks(square, WHITE_PAWN_OFFSETS);
+            PAWN_ATTACKS[Piece.BLACK][square] = offsetAttacks(square, BLACK_PAWN_OFFSETS);
+            initMagic(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_TABLE);
+            initMagic(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_TABLE);
+        }
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if ((rookAttacks(a, 0) & bit(b)) != 0) {
+                    LINE[a][b] = (rookAttacks(a, 0) & rookAttacks(b, 0)) | bit(a) | bit(b);
+                    BETWEEN[a][b] = rookAttacks(a, bit(b)) & rookAttacks(b, bit(a));
+                } else if ((bishopAttacks(a, 0) & bit(b)) != 0) {
+                    LINE[a][b] = (bishopAttacks(a, 0) & bishopAttacks(b, 0)) | bit(a) | bit(b);
+                    BETWEEN[a][b] = bishopAttacks(a, bit(b)) & bishopAttacks(b, bit(a));
+                }
+            }
+        }
+    }
+
+    private Bitboards() {
+    }
+
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    public static int square(int row, int column) {
+        return row * 8 + column;
+    }
+
+    public static int row(int square) {
+        return square >>> 3;
+    }
+
+    public static int column(int square) {
+        return square & 7;
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    public static long pawnAttacks(int colour, int square) {
+        return PAWN_ATTACKS[colour][square];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[square][(int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square])
+                >>> ROOK_SHIFTS[square])];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[square][(int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square])
+                >>> BISHOP_SHIFTS[square])];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    private static long offsetAttacks(int square, int[][] offsets) {
+        long attacks = 0;
+        for (int[] offset : offsets) {
+            int row = row(square) + offset[0];
+            int column = column(square) + offset[1];
+            if (row >= 0 && row < 8 && column >= 0 && column < 8) {
+                attacks |= bit(square(row, column));
+            }
+        }
+        return attacks;
+    }
+
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (int[] direction : directions) {
+            int row = row(square) + direction[0];
+            int column = column(square) + direction[1];
+            while (row >= 0 && row < 8 && column >= 0 && column < 8) {
+                attacks |= bit(square(row, column));
+                if ((occupied & bit(square(row, column))) != 0) {
+                    break;
+                }
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+        return attacks;
+    }
+
+    private static long relevantOccupancy(int square, int[][] directions) {
+        long mask = 0;
+        for (int[] direction : directions) {
+            int row = row(square) + direction[0];
+            int column = column(square) + direction[1];
+            // the last square of a ray never blocks anything behind it
+            while (row + direction[0] >= 0 && row + direction[0] < 8 && column + direction[1] >= 0
+                    && column + direction[1] < 8) {
+                mask |= bit(square(row, column));
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static void initMagic(int square, int[][] directions, long[] masks, long[] magics, int[] shifts,
+            long[][] tables) {
+        long mask = relevantOccupancy(square, directions);
+        int bits = Long.bitCount(mask);
+        int size = 1 << bits;
+        long[] occupancies = new long[size];
+        long[] attacks = new long[size];
+        long subset = 0;
+        int count = 0;
+        do {
+            occupancies[count] = subset;
+            attacks[count] = slidingAttacks(square, subset, directions);
+            count++;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+
+        seed = MAGIC_SEEDS[row(square)];
+        long[] table = new long[size];
+        int[] used = new int[size];
+        int attempt = 0;
+        while (true) {
+            long magic = nextRandom() & nextRandom() & nextRandom();
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                continue;
+            }
+            attempt++;
+            boolean collision = false;
+            for (int i = 0; i < size && !collision; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> (64 - bits));
+                if (used[index] != attempt) {
+                    used[index] = attempt;
+                    table[index] = attacks[i];
+                } else if (table[index] != attacks[i]) {
+                    collision = true;
+                }
+            }
+            if (!collision) {
+                masks[square] = mask;
+                magics[square] = magic;
+                shifts[square] = 64 - bits;
+                tables[square] = table;
+                return;
+            }
+        }
+    }
+
+    private static long nextRandom() {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        return seed * 0x2545F4914F6CDD1DL;
+    }
+}
@@ -1,520 +1,337 @@
 package chess;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 
-import chess.pieces.Piece;
-import chess.pieces.Pawn;
-import chess.pieces.Rook;
-import chess.pieces.Knight;
-import chess.pieces.Bishop;
-import chess.pieces.Queen;
-import chess.pieces.King;
+import chess.metrics.Instrumentation;
+import chess.metrics.OperationEvent;
+import chess.metrics.Operation;
 
 public class Chess {
 
-    private Field[][] board;
-    private ArrayList<String> moves = new ArrayList<>();
+    private Position position;
+    private final String startFen;
+    private final long initialTime;
+    private final TimeControl timeControl;
+    private final TimeSource timeSource;
+    // notation is generated lazily from the moves recorded in position
+    private ArrayList<String> moves;
+    private long[] moveTimes;
+    // set while moves and moveTimes are shared with a fork, whichever side writes first copies them
+    private boolean recordShared;
     private long timeWhite = 0;
     private long timeBlack = 0;
-    private long lastMoveDate = System.currentTimeMillis();
+    private long lastMoveNanos;
+    private final int[] legalMoves = new int[Move.MAX_MOVES];
+    // validation bursts hit one position many times; created on first use so forks stay cheap, and never
+    // shared, since forks usually end up on other threads; current is dropped on every move
+    private MoveCache moveCache;
+    private MoveCache.Entry current;
 
     public Chess() {
         this(15*60);
     }
 
     public Chess(int timeInSeconds) {
-        board = new Field[8][8];
-        for (int i = 0; i < 8; i++) {
-            board[1][i] = new Field(1, i, new Pawn(true));
-            board[6][i] = new Field(6, i, new Pawn(false));
-        }
-        board[0][0] = new Field(0, 0, new Rook(true));
-        board[0][1] = new Field(0, 1, new Knight(true));
-        board[0][2] = new Field(0, 2, new Bishop(true));
-        board[0][3] = new Field(0, 3, new Queen(true));
-        board[0][4] = new Field(0, 4, new King(true));
-        board[0][5] = new Field(0, 5, new Bishop(true));
-        board[0][6] = new Field(0, 6, new Knight(true));
-
-        board[0][7] = new Field(0, 7, new Rook(true));
-        board[7][0] = new Field(7, 0, new Rook(false));
-        board[7][1] = new Field(7, 1, new Knight(false));
-        board[7][2] = new Field(7, 2, new Bishop(false));
-        board[7][3] = new Field(7, 3, new Queen(false));
-        board[7][4] = new Field(7, 4, new King(false));
-        board[7][5] = new Field(7, 5, new Bishop(false));
-        board[7][6] = new Field(7, 6, new Knight(false));
-        board[7][7] = new Field(7, 7, new Rook(false));
-
-        for (int i = 2; i < 6; i++) {
-            for (int j = 0; j < 8; j++) {
-                board[i][j] = new Field(i, j, null);
-            }
-        }
+        this(TimeControl.ofSeconds(timeInSeconds));
+    }
+
+    public Chess(TimeControl timeControl) {
+        this(timeControl, TimeSource.SYSTEM);
+    }
+
+    public Chess(TimeControl timeControl, TimeSource timeSource) {
+        this(Position.startPosition(), timeControl, timeSource);
+    }
+
+    private Chess(Position position, TimeControl timeControl, TimeSource timeSource) {
+        this.position = position;
+        this.startFen = position.toFen();
+        this.initialTime = timeControl.getInitialMillis();
+        this.timeControl = timeControl;
+        this.timeSource = timeSource;
+        this.moves = new ArrayList<>();
+        this.moveTimes = new long[128];
+
+        timeWhite = initialTime;
+        timeBlack = initialTime;
+        lastMoveNanos = timeSource.nanoTime();
+    }
+
+    private Chess(Chess other) {
+        this.position = other.position.fork();
+        this.startFen = other.startFen;
+        this.initialTime = other.initialTime;
+        this.timeControl = other.timeControl;
+        this.timeSource = other.timeSource;
+        this.moves = other.moves;
+        this.moveTimes = other.moveTimes;
+        this.timeWhite = other.timeWhite;
+        this.timeBlack = other.timeBlack;
+        this.lastMoveNanos = other.lastMoveNanos;
+        recordShared = true;
+        other.recordShared = true;
+    }
 
-        timeWhite = timeInSeconds * 1000;
-        timeBlack = timeInSeconds * 1000;
+    // an independent game in constant time, clocks included
+    public Chess fork() {
+        return new Chess(this);
+    }
+
+    public static Chess fromFen(String fen) {
+        return fromFen(fen, 15*60);
+    }
+
+    public static Chess fromFen(String fen, int timeInSeconds) {
+        return fromFen(fen, TimeControl.ofSeconds(timeInSeconds), TimeSource.SYSTEM);
+    }
+
+    public static Chess fromFen(String fen, TimeControl timeControl, TimeSource timeSource) {
+        return new Chess(Position.fromFen(fen), timeControl, timeSource);
+    }
+
+    public String toFen() {
+        return position.toFen();
     }
 
     public void move(int fromRow, int fromColumn, int toRow, int toColumn) {
-        String notation = generateAlgebraicNotation(fromRow, fromColumn, toRow, toColumn);
-        Piece piece = board[fromRow][fromColumn].getPiece();
-        if (piece instanceof King && Math.abs(fromColumn - toColumn) == 2) {
-            if (piece.isWhite()) {
-                if (toColumn == 6) {
-                    board[0][7].setPiece(null);
-                    board[0][5].setPiece(new Rook(true));
-                } else {
-                    board[0][0].setPiece(null);
-                    board[0][3].setPiece(new Rook(true));
-                }
-            } else {
-                if (toColumn == 6) {
-                    board[7][7].setPiece(null);
-                    board[7][5].setPiece(new Rook(false));
-                } else {
-                    board[7][0].setPiece(null);
-                    board[7][3].setPiece(new Rook(false));
-                }
-            }
-        } else if (piece instanceof Pawn && fromColumn != toColumn && board[toRow][toColumn].getPiece() == null) {
-            board[toRow + (piece.isWhite() ? -1 : 1)][toColumn].setPiece(null);
-        }
-        board[toRow][toColumn].setPiece(piece);
-        board[fromRow][fromColumn].setPiece(null);
-        moves.add(notation);
-        if (piece instanceof King) {
-            ((King) piece).setHasMoved(true);
-        } else if (piece instanceof Rook) {
-            ((Rook) piece).setHasMoved(true);
-        } else if (piece instanceof Pawn && (toRow == 0 || toRow == 7)) {
-            board[toRow][toColumn].setPiece(new Queen(piece.isWhite()));
+        int from = Bitboards.square(fromRow, fromColumn);
+        move(position.encodeMove(from, Bitboards.square(toRow, toColumn), Piece.QUEEN));
+    }
+
+    public int encodeMove(int fromRow, int fromColumn, int toRow, int toColumn, int promotionType) {
+        int from = Bitboards.square(fromRow, fromColumn);
+        return position.encodeMove(from, Bitboards.square(toRow, toColumn), promotionType);
+    }
+
+    public void move(int encodedMove) {
+        move(encodedMove, (timeSource.nanoTime() - lastMoveNanos) / 1_000_000);
+    }
+
+    public void move(int encodedMove, long elapsedMillis) {
+        OperationEvent event = Instrumentation.start(Operation.MOVE);
+        int count = getMoveCount();
+        unshareRecord();
+        if (count == moveTimes.length) {
+            moveTimes = Arrays.copyOf(moveTimes, moveTimes.length * 2);
         }
+        moveTimes[count] = elapsedMillis;
+        position.makeMove(encodedMove);
+        current = null;
 
+        long charged = timeControl.charge(elapsedMillis) - timeControl.getIncrementMillis();
         if (isWhiteTurn()) {
-            timeBlack -= (System.currentTimeMillis() - lastMoveDate);
+            timeBlack -= charged;
         } else {
-            timeWhite -= (System.currentTimeMillis() - lastMoveDate);
+            timeWhite -= charged;
         }
-        lastMoveDate = System.currentTimeMillis();
+        lastMoveNanos = timeSource.nanoTime();
+        Instrumentation.end(event);
     }
 
     public boolean fieldIsThreatened(int row, int column, boolean asWhite) {
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if (isThreateningField(i, j, row, column, asWhite)) {
-                    return true;
-                }
-
-            }
-        }
-        return false;
+        return cached().isAttacked(Bitboards.square(row, column), asWhite ? Piece.BLACK : Piece.WHITE);
     }
 
     public boolean isThreateningField(int fromRow, int fromColumn, int toRow, int toColumn, boolean asWhite) {
-        Piece attackingPiece = board[fromRow][fromColumn].getPiece();
-        if (attackingPiece == null || attackingPiece.isWhite() == asWhite) {
+        int attackingPiece = position.pieceAt(Bitboards.square(fromRow, fromColumn));
+        if (attackingPiece == Piece.NONE || Piece.isWhite(attackingPiece) == asWhite) {
             return false;
         }
-        if (attackingPiece instanceof Pawn) {
-            return isValidPawnMovement(fromRow, fromColumn, toRow, toColumn);
-        } else if (attackingPiece instanceof Rook) {
-            return isValidRookMovement(fromRow, fromColumn, toRow, toColumn);
-        } else if (attackingPiece instanceof Knight) {
-            return isValidKnightMovement(fromRow, fromColumn, toRow, toColumn);
-        } else if (attackingPiece instanceof Bishop) {
-            return isValidBishopMovement(fromRow, fromColumn, toRow, toColumn);
-        } else if (attackingPiece instanceof Queen) {
-            return isValidQueenMovement(fromRow, fromColumn, toRow, toColumn);
-        } else if (attackingPiece instanceof King) {
-            return isValidKingMovement(fromRow, fromColumn, toRow, toColumn);
-        }
-        return false;
+        return (position.attacksFrom(Bitboards.square(fromRow, fromColumn))
+                & Bitboards.bit(Bitboards.square(toRow, toColumn))) != 0;
     }
 
     public boolean isValidAction(int fromRow, int fromColumn, int toRow, int toColumn) {
+        OperationEvent event = Instrumentation.start(Operation.VALIDATION);
+        boolean valid = checkAction(fromRow, fromColumn, toRow, toColumn);
+        Instrumentation.end(event);
+        return valid;
+    }
+
+    private boolean checkAction(int fromRow, int fromColumn, int toRow, int toColumn) {
         if (fromRow < 0 || fromRow > 7 || fromColumn < 0 || fromColumn > 7 || toRow < 0 || toRow > 7 || toColumn < 0
                 || toColumn > 7 || (fromRow == toRow && fromColumn == toColumn)) {
             return false;
         }
-        if (isWhiteTurn()) {
-            if (timeWhite - (System.currentTimeMillis() - lastMoveDate) <= 0) {
-                return false;
-            }
-        } else {
-            if (timeBlack - (System.currentTimeMillis() - lastMoveDate) <= 0) {
-                return false;
-            }
-        }
-
-        Piece piece = board[fromRow][fromColumn].getPiece();
-        if (piece == null) {
-            return false;
-        }
-        if (piece.isWhite() != isWhiteTurn()) {
+        if (!hasTimeLeft()) {
             return false;
         }
-        if (piece instanceof Pawn) {
-            if (!isValidPawnMovement(fromRow, fromColumn, toRow, toColumn)) {
-                return false;
-            }
-        } else if (piece instanceof Rook) {
-            if (!isValidRookMovement(fromRow, fromColumn, toRow, toColumn)) {
-                return false;
-            }
-        } else if (piece instanceof Knight) {
-            if (!isValidKnightMovement(fromRow, fromColumn, toRow, toColumn)) {
-                return false;
-            }
-        } else if (piece instanceof Bishop) {
-            if (!isValidBishopMovement(fromRow, fromColumn, toRow, toColumn)) {
-                return false;
-            }
-        } else if (piece instanceof Queen) {
-            if (!isValidQueenMovement(fromRow, fromColumn, toRow, toColumn)) {
-                return false;
-            }
-        } else if (piece instanceof King) {
-            if (!isValidKingMovement(fromRow, fromColumn, toRow, toColumn)
-                    && !isValidCastling(fromRow, fromColumn, toRow, toColumn)) {
-                return false;
-            }
-        }
-
-        Piece toPiece = board[toRow][toColumn].getPiece();
-        board[toRow][toColumn].setPiece(piece);
-        board[fromRow][fromColumn].setPiece(null);
 
-        Field kingField = getKingField(piece.isWhite());
-        boolean kingUnderAttack = fieldIsThreatened(kingField.getRow(), kingField.getColumn(), piece.isWhite());
-
-        board[fromRow][fromColumn].setPiece(piece);
-        board[toRow][toColumn].setPiece(toPiece);
-
-        return !kingUnderAttack;
+        return cached().isLegal(Bitboards.square(fromRow, fromColumn), Bitboards.square(toRow, toColumn));
     }
 
-    private boolean isValidPawnMovement(int fromRow, int fromColumn, int toRow, int toColumn) {
-        Piece movingPiece = board[fromRow][fromColumn].getPiece();
-        Piece targetLocationPiece = board[toRow][toColumn].getPiece();
-
-        if (movingPiece.isWhite()) {
-            // double move
-            if (fromRow == 1 && fromColumn == toColumn && toRow == 3 && board[2][toColumn].getPiece() == null
-                    && board[3][toColumn].getPiece() == null) {
-                return true;
-            }
-            // move
-            if (fromRow + 1 == toRow && fromColumn == toColumn && targetLocationPiece == null) {
-                return true;
-            }
-            // capture
-            if (fromRow + 1 == toRow && (fromColumn == toColumn + 1 || fromColumn == toColumn - 1)
-                    && ((targetLocationPiece != null && !targetLocationPiece.isWhite()))) {
-                return true;
-            }
-            // en passant
-            if (fromRow == 4 && (fromColumn == toColumn + 1 || fromColumn == toColumn - 1)
-                    && (moves.size() > 0
-                            && moves.get(moves.size() - 1).equals(getColumnLetter(toColumn) + 5))) {
-                return true;
-            }
-        } else {
-            if (fromRow == 6 && fromColumn == toColumn && toRow == 4 && board[5][toColumn].getPiece() == null
-                    && board[4][toColumn].getPiece() == null) {
-                return true;
-            }
-            if (fromRow - 1 == toRow && fromColumn == toColumn && targetLocationPiece == null) {
-                return true;
-            }
-            if (fromRow - 1 == toRow && (fromColumn == toColumn + 1 || fromColumn == toColumn - 1)
-                    && ((targetLocationPiece != null && targetLocationPiece.isWhite()))) {
-                return true;
-            }
-            if (fromRow == 3 && (fromColumn == toColumn + 1 || fromColumn == toColumn - 1)
-                    && (moves.size() > 0
-                            && moves.get(moves.size() - 1).equals(getColumnLetter(toColumn) + 4))) {
+    // whether the encoded move, promotion included, can be played in this position regardless of the clocks
+    public boolean isLegalMove(int encodedMove) {
+        int count = position.generateLegalMoves(legalMoves);
+        for (int i = 0; i < count; i++) {
+            if (legalMoves[i] == encodedMove) {
                 return true;
             }
         }
-
         return false;
     }
 
-    private boolean isValidRookMovement(int fromRow, int fromColumn, int toRow, int toColumn) {
-        Piece movingPiece = board[fromRow][fromColumn].getPiece();
-        Piece targetLocationPiece = board[toRow][toColumn].getPiece();
-
-        if (fromRow == toRow) {
-            if (fromColumn < toColumn) {
-                for (int i = fromColumn + 1; i < toColumn; i++) {
-                    if (board[fromRow][i].getPiece() != null) {
-                        return false;
-                    }
-                }
-                return targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite();
-            } else {
-                for (int i = fromColumn - 1; i > toColumn; i--) {
-                    if (board[fromRow][i].getPiece() != null) {
-                        return false;
-                    }
-                }
-                return targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite();
-            }
+    public int generateLegalMoves(int[] moves) {
+        if (!hasTimeLeft()) {
+            return 0;
         }
-        if (fromColumn == toColumn) {
-            if (fromRow < toRow) {
-                for (int i = fromRow + 1; i < toRow; i++) {
-                    if (board[i][fromColumn].getPiece() != null) {
-                        return false;
-                    }
-                }
-                return targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite();
-            } else {
-                for (int i = fromRow - 1; i > toRow; i--) {
-                    if (board[i][fromColumn].getPiece() != null) {
-                        return false;
-                    }
-                }
-                return targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite();
-            }
+        return position.generateLegalMoves(moves);
+    }
+
+    public int generateLegalMoves(int fromRow, int fromColumn, int[] moves) {
+        if (fromRow < 0 || fromRow > 7 || fromColumn < 0 || fromColumn > 7 || !hasTimeLeft()) {
+            return 0;
         }
-        return false;
+        return position.generateLegalMoves(Bitboards.square(fromRow, fromColumn), moves);
     }
 
-    private boolean isValidKnightMovement(int fromRow, int fromColumn, int toRow, int toColumn) {
-        Piece movingPiece = board[fromRow][fromColumn].getPiece();
-        Piece targetLocationPiece = board[toRow][toColumn].getPiece();
+    public GameState getGameState() {
+        OperationEvent event = Instrumentation.start(Operation.GAME_STATE);
+        GameState state = computeGameState();
+        Instrumentation.end(event);
+        return state;
+    }
 
-        if (fromRow == toRow + 2 && fromColumn == toColumn + 1
-                && (targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite())) {
-            return true;
+    private GameState computeGameState() {
+        if (cached().getLegalMoveCount() == 0) {
+            return position.isInCheck() ? GameState.CHECKMATE : GameState.STALEMATE;
         }
-        if (fromRow == toRow + 2 && fromColumn == toColumn - 1
-                && (targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite())) {
-            return true;
+        if (!hasTimeLeft()) {
+            return GameState.FLAG;
         }
-        if (fromRow == toRow - 2 && fromColumn == toColumn + 1
-                && (targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite())) {
-            return true;
-        }
-        if (fromRow == toRow - 2 && fromColumn == toColumn - 1
-                && (targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite())) {
-            return true;
-        }
-
-        if (fromRow == toRow + 1 && fromColumn == toColumn + 2
-                && (targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite())) {
-            return true;
+        if (position.repetitionCount() >= 3) {
+            return GameState.REPETITION;
         }
-        if (fromRow == toRow + 1 && fromColumn == toColumn - 2
-                && (targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite())) {
-            return true;
+        if (position.isFiftyMoveRule()) {
+            return GameState.FIFTY_MOVE;
         }
-        if (fromRow == toRow - 1 && fromColumn == toColumn + 2
-                && (targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite())) {
-            return true;
+        if (position.hasInsufficientMaterial()) {
+            return GameState.INSUFFICIENT_MATERIAL;
         }
-        if (fromRow == toRow - 1 && fromColumn == toColumn - 2
-                && (targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite())) {
-            return true;
-        }
-        return false;
+        return GameState.ONGOING;
     }
 
-    private boolean isValidBishopMovement(int fromRow, int fromColumn, int toRow, int toColumn) {
-        Piece movingPiece = board[fromRow][fromColumn].getPiece();
-        Piece targetLocationPiece = board[toRow][toColumn].getPiece();
-
-        for (int i = 0; i < 8; i++) {
-            if (fromRow + i == toRow && fromColumn + i == toColumn) {
-                for (int j = 1; j < i; j++) {
-                    if (board[fromRow + j][fromColumn + j].getPiece() != null) {
-                        return false;
-                    }
-                }
-                return targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite();
-            }
-            if (fromRow + i == toRow && fromColumn - i == toColumn) {
-                for (int j = 1; j < i; j++) {
-                    if (board[fromRow + j][fromColumn - j].getPiece() != null) {
-                        return false;
-                    }
-                }
-                return targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite();
-            }
-            if (fromRow - i == toRow && fromColumn + i == toColumn) {
-                for (int j = 1; j < i; j++) {
-                    if (board[fromRow - j][fromColumn + j].getPiece() != null) {
-                        return false;
-                    }
-                }
-                return targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite();
-            }
-            if (fromRow - i == toRow && fromColumn - i == toColumn) {
-                for (int j = 1; j < i; j++) {
-                    if (board[fromRow - j][fromColumn - j].getPiece() != null) {
-                        return false;
-                    }
-                }
-                return targetLocationPiece == null || targetLocationPiece.isWhite() != movingPiece.isWhite();
-            }
-        }
-        return false;
+    private boolean hasTimeLeft() {
+        return getRemainingNanos() > 0;
     }
 
-    private boolean isValidQueenMovement(int fromRow, int fromColumn, int toRow, int toColumn) {
-        return isValidRookMovement(fromRow, fromColumn, toRow, toColumn)
-                || isValidBishopMovement(fromRow, fromColumn, toRow, toColumn);
+    // time until the side to move flags, counting the delay that is not taken off the clock
+    public long getRemainingNanos() {
+        long clock = isWhiteTurn() ? timeWhite : timeBlack;
+        long elapsed = timeSource.nanoTime() - lastMoveNanos;
+        return (clock + timeControl.getDelayMillis()) * 1_000_000 - elapsed;
     }
 
-    private boolean isValidKingMovement(int fromRow, int fromColumn, int toRow, int toColumn) {
-        Piece piece = board[fromRow][fromColumn].getPiece();
-        if (fromRow == toRow + 1 && fromColumn == toColumn && (board[toRow][toColumn].getPiece() == null
-                || board[toRow][toColumn].getPiece().isWhite() != piece.isWhite())) {
-            return true;
-        }
-        if (fromRow == toRow + 1 && fromColumn == toColumn + 1 && (board[toRow][toColumn].getPiece() == null
-                || board[toRow][toColumn].getPiece().isWhite() != piece.isWhite())) {
-            return true;
-        }
-        if (fromRow == toRow + 1 && fromColumn == toColumn - 1 && (board[toRow][toColumn].getPiece() == null
-                || board[toRow][toColumn].getPiece().isWhite() != piece.isWhite())) {
-            return true;
-        }
-        if (fromRow == toRow && fromColumn == toColumn + 1 && (board[toRow][toColumn].getPiece() == null
-                || board[toRow][toColumn].getPiece().isWhite() != piece.isWhite())) {
-            return true;
-        }
-        if (fromRow == toRow && fromColumn == toColumn - 1 && (board[toRow][toColumn].getPiece() == null
-                || board[toRow][toColumn].getPiece().isWhite() != piece.isWhite())) {
-            return true;
-        }
-        if (fromRow == toRow - 1 && fromColumn == toColumn && (board[toRow][toColumn].getPiece() == null
-                || board[toRow][toColumn].getPiece().isWhite() != piece.isWhite())) {
-            return true;
-        }
-        if (fromRow == toRow - 1 && fromColumn == toColumn + 1 && (board[toRow][toColumn].getPiece() == null
-                || board[toRow][toColumn].getPiece().isWhite() != piece.isWhite())) {
-            return true;
-        }
-        if (fromRow == toRow - 1 && fromColumn == toColumn - 1 && (board[toRow][toColumn].getPiece() == null
-                || board[toRow][toColumn].getPiece().isWhite() != piece.isWhite())) {
-            return true;
-        }
-        return false;
+    public int parseMove(CharSequence san) {
+        return SanParser.parse(position, san, legalMoves);
     }
 
-    private boolean isValidCastling(int fromRow, int fromColumn, int toRow, int toColumn) {
-        King king = (King) board[fromRow][fromColumn].getPiece();
-        if (!king.hasMoved() && !fieldIsThreatened(fromRow, fromColumn, king.isWhite())) {
-            if (king.isWhite()) {
-                if (fromRow == 0 && fromColumn == 4 && toRow == 0 && toColumn == 6
-                        && board[0][5].getPiece() == null
-                        && board[0][6].getPiece() == null
-                        && board[0][7].getPiece().isWhite()
-                        && board[0][7].getPiece() instanceof Rook
-                        && !((Rook) board[0][7].getPiece()).hasMoved()
-                        && !fieldIsThreatened(0, 5, true)
-                        && !fieldIsThreatened(0, 6, true)
-                        && !fieldIsThreatened(0, 7, true)) {
-                    return true;
-                }
-                if (fromRow == 0 && fromColumn == 4 && toRow == 0 && toColumn == 2
-                        && board[0][1].getPiece() == null
-                        && board[0][2].getPiece() == null
-                        && board[0][3].getPiece() == null
-                        && board[0][0].getPiece().isWhite()
-                        && board[0][0].getPiece() instanceof Rook
-                        && !((Rook) board[0][0].getPiece()).hasMoved()
-                        && !fieldIsThreatened(0, 0, true)
-                        && !fieldIsThreatened(0, 2, true)
-                        && !fieldIsThreatened(0, 3, true)) {
-                    return true;
-                }
-            } else {
-                if (fromRow == 7 && fromColumn == 4 && toRow == 7 && toColumn == 6
-                        && board[7][5].getPiece() == null
-                        && board[7][6].getPiece() == null
-                        && !board[7][7].getPiece().isWhite()
-                        && board[7][7].getPiece() instanceof Rook
-                        && !((Rook) board[7][7].getPiece()).hasMoved()
-                        && !fieldIsThreatened(7, 5, false)
-                        && !fieldIsThreatened(7, 6, false)
-                        && !fieldIsThreatened(7, 7, false)) {
-                    return true;
-                }
-                if (fromRow == 7 && fromColumn == 4 && toRow == 7 && toColumn == 2
-                        && board[7][1].getPiece() == null
-                        && board[7][2].getPiece() == null
-                        && board[7][3].getPiece() == null
-                        && !board[7][0].getPiece().isWhite()
-                        && board[7][0].getPiece() instanceof Rook
-                        && !((Rook) board[7][0].getPiece()).hasMoved()
-                        && !fieldIsThreatened(7, 0, false)
-                        && !fieldIsThreatened(7, 2, false)
-                        && !fieldIsThreatened(7, 3, false)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    public String generateAlgebraicNotation(int fromRow, int fromColumn, int toRow, int toColumn) {
+        int from = Bitboards.square(fromRow, fromColumn);
+        return generateAlgebraicNotation(position.encodeMove(from, Bitboards.square(toRow, toColumn), Piece.QUEEN));
     }
 
-    public String generateAlgebraicNotation(int fromRow, int fromColumn, int toRow, int toColumn) {
+    public String generateAlgebraicNotation(int encodedMove) {
         String notation = "";
-        Piece movingPiece = board[fromRow][fromColumn].getPiece();
+        int fromColumn = Bitboards.column(Move.from(encodedMove));
+        int toColumn = Bitboards.column(Move.to(encodedMove));
+        int toRow = Bitboards.row(Move.to(encodedMove));
+        int movingPiece = position.pieceAt(Move.from(encodedMove));
+        int targetLocationPiece = position.pieceAt(Move.to(encodedMove));
 
-        if (movingPiece instanceof King && Math.abs(fromColumn - toColumn) == 2) {
+        if (Move.isCastling(encodedMove)) {
             if (toColumn == 6) {
                 notation = "O-O";
             } else {
                 notation = "O-O-O";
             }
             return notation;
-        } else if (movingPiece instanceof Pawn) {
-            if (fromColumn != toColumn && board[toRow][toColumn].getPiece() == null) {
+        } else if (Piece.type(movingPiece) == Piece.PAWN) {
+            if (fromColumn != toColumn) {
                 notation = getColumnLetter(fromColumn) + "x" + getColumnLetter(toColumn) + (toRow + 1);
             } else {
                 notation = getColumnLetter(toColumn) + (toRow + 1);
             }
-            if (toRow == 0 || toRow == 7) {
-                notation += "=Q";
+            if (Move.isPromotion(encodedMove)) {
+                notation += "=" + Piece.toChar(Piece.of(Piece.WHITE, Move.promotionType(encodedMove)));
             }
             return notation;
         }
-        notation += movingPiece instanceof Rook ? "R"
-                : movingPiece instanceof Knight ? "N"
-                        : movingPiece instanceof Bishop ? "B" : movingPiece instanceof Queen ? "Q" : "K";
-        if (board[toRow][toColumn].getPiece() != null) {
+        notation += Character.toUpperCase(Piece.toChar(movingPiece));
+        notation += disambiguation(encodedMove, movingPiece);
+        if (targetLocationPiece != Piece.NONE) {
             notation += "x";
         }
         notation += getColumnLetter(toColumn) + (toRow + 1);
         return notation;
     }
 
+    private String disambiguation(int encodedMove, int movingPiece) {
+        int from = Move.from(encodedMove);
+        if (Long.bitCount(position.pieces(movingPiece)) < 2) {
+            return "";
+        }
+        boolean ambiguous = false;
+        boolean sameColumn = false;
+        boolean sameRow = false;
+        int count = position.generateLegalMoves(legalMoves);
+        for (int i = 0; i < count; i++) {
+            int other = Move.from(legalMoves[i]);
+            if (other != from && Move.to(legalMoves[i]) == Move.to(encodedMove)
+                    && position.pieceAt(other) == movingPiece) {
+                ambiguous = true;
+                sameColumn |= Bitboards.column(other) == Bitboards.column(from);
+                sameRow |= Bitboards.row(other) == Bitboards.row(from);
+            }
+        }
+        if (!ambiguous) {
+            return "";
+        }
+        if (!sameColumn) {
+            return getColumnLetter(Bitboards.column(from));
+        }
+        if (!sameRow) {
+            return String.valueOf(Bitboards.row(from) + 1);
+        }
+        return getColumnLetter(Bitboards.column(from)) + (Bitboards.row(from) + 1);
+    }
+
     public boolean isWhiteTurn() {
-        return moves.size() % 2 == 0;
+        return position.isWhiteToMove();
+    }
+
+    public long getPositionHash() {
+        return position.getHash();
+    }
+
+    public long pieces(int piece) {
+        return position.pieces(piece);
+    }
+
+    public int getCastlingRights() {
+        return position.getCastlingRights();
+    }
+
+    public int getEnPassantSquare() {
+        return position.getEnPassantSquare();
+    }
+
+    // a detached copy, so engines and analysis can make moves without touching the game
+    public Position copyPosition() {
+        return new Position(position);
     }
 
     public String getLastMove() {
-        if (moves.size() == 0) {
+        if (getMoveCount() == 0) {
             return "";
         }
+        updateNotation();
         return moves.get(moves.size() - 1);
     }
 
-    private Field getKingField(boolean forWhite) {
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                if (board[i][j].getPiece() instanceof King && board[i][j].getPiece().isWhite() == forWhite) {
-                    return board[i][j];
-                }
-            }
-        }
-        return null;
-    }
-
     private String getColumnLetter(int column) {
         switch (column) {
             case 0:
@@ -540,21 +357,7 @@ public class Chess {
         for (int i = 7; i >= 0; i--) {
             System.out.print((i + 1) + " ");
             for (int j = 0; j < 8; j++) {
-                if (board[i][j].getPiece() == null) {
-                    System.out.print("  ");
-                } else if (board[i][j].getPiece() instanceof Pawn) {
-                    System.out.print((board[i][j].getPiece().isWhite() ? "P" : "p") + " ");
-                } else if (board[i][j].getPiece() instanceof Rook) {
-                    System.out.print((board[i][j].getPiece().isWhite() ? "R" : "r") + " ");
-                } else if (board[i][j].getPiece() instanceof Knight) {
-                    System.out.print((board[i][j].getPiece().isWhite() ? "N" : "n") + " ");
-                } else if (board[i][j].getPiece() instanceof Bishop) {
-                    System.out.print((board[i][j].getPiece().isWhite() ? "B" : "b") + " ");
-                } else if (board[i][j].getPiece() instanceof Queen) {
-                    System.out.print((board[i][j].getPiece().isWhite() ? "Q" : "q") + " ");
-                } else if (board[i][j].getPiece() instanceof King) {
-                    System.out.print((board[i][j].getPiece().isWhite() ? "K" : "k") + " ");
-                }
+                System.out.print(Piece.toChar(position.pieceAt(Bitboards.square(i, j))) + " ");
             }
             System.out.println(i + 1);
         }
@@ -562,50 +365,140 @@ public class Chess {
     }
 
     public String getBoardString() {
-        String boardString = "";
-        if (isWhiteTurn()) {
-            boardString += "w";
-        } else {
-            boardString += "b";
-        }
-        boardString += ",";
-        boardString += timeWhite + "," + timeBlack + ",";
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                Piece piece = board[i][j].getPiece();
-                if (piece == null) {
-                    boardString += " ";
-                } else if (piece instanceof Pawn) {
-                    boardString += piece.isWhite() ? "P" : "p";
-                } else if (piece instanceof Rook) {
-                    boardString += piece.isWhite() ? "R" : "r";
-                } else if (piece instanceof Knight) {
-                    boardString += piece.isWhite() ? "N" : "n";
-                } else if (piece instanceof Bishop) {
-                    boardString += piece.isWhite() ? "B" : "b";
-                } else if (piece instanceof Queen) {
-                    boardString += piece.isWhite() ? "Q" : "q";
-                } else if (piece instanceof King) {
-                    boardString += piece.isWhite() ? "K" : "k";
-                }
-            }
+        StringBuilder boardString = new StringBuilder(96);
+        try {
+            appendBoardString(boardString);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return boardString;
+        return boardString.toString();
+    }
+
+    public void appendBoardString(Appendable out) throws IOException {
+        OperationEvent event = Instrumentation.start(Operation.SERIALIZATION);
+        out.append(isWhiteTurn() ? 'w' : 'b').append(',');
+        appendNumber(out, timeWhite);
+        out.append(',');
+        appendNumber(out, timeBlack);
+        out.append(',');
+        for (int i = 0; i < 64; i++) {
+            out.append(Piece.toChar(position.pieceAt(i)));
+        }
+        Instrumentation.end(event);
     }
 
     public String getMovesString() {
-        String movesString = "";
-        for (int i = 0; i < moves.size(); i++) {
+        StringBuilder movesString = new StringBuilder(getMoveCount() * 8);
+        try {
+            appendMovesString(movesString, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return movesString.toString();
+    }
+
+    // separators go in front of each move so appending from fromMove continues an earlier output exactly
+    public int appendMovesString(Appendable out, int fromMove) throws IOException {
+        OperationEvent event = Instrumentation.start(Operation.SERIALIZATION);
+        updateNotation();
+        for (int i = fromMove; i < moves.size(); i++) {
+            if (i > 0) {
+                out.append(i % 2 == 0 ? '\n' : ' ');
+            }
             if (i % 2 == 0) {
-                movesString += (i / 2 + 1) + ". " + moves.get(i) + " ";
-            } else {
-                movesString += moves.get(i) + "\n";
+                appendNumber(out, i / 2 + 1);
+                out.append(". ");
             }
+            out.append(moves.get(i));
+        }
+        Instrumentation.end(event);
+        return Math.max(0, moves.size() - fromMove);
+    }
+
+    public int getMoveCount() {
+        return position.getPly();
+    }
+
+    public int getMove(int index) {
+        return position.getMove(index);
+    }
+
+    public long getMoveTime(int index) {
+        return moveTimes[index];
+    }
+
+    public String getStartFen() {
+        return startFen;
+    }
+
+    public long getInitialTime() {
+        return initialTime;
+    }
+
+    public TimeControl getTimeControl() {
+        return timeControl;
+    }
+
+    public long getTimeWhite() {
+        return timeWhite;
+    }
+
+    public long getTimeBlack() {
+        return timeBlack;
+    }
+
+    // steps back over the moves without notation yet and replays them, naming each on the way
+    private void updateNotation() {
+        int pending = getMoveCount() - moves.size();
+        if (pending == 0) {
+            return;
+        }
+        unshareRecord();
+        int[] replay = new int[pending];
+        for (int i = 0; i < pending; i++) {
+            replay[i] = position.getMove(moves.size() + i);
+        }
+        for (int i = 0; i < pending; i++) {
+            position.unmakeMove();
+        }
+        for (int move : replay) {
+            moves.add(generateAlgebraicNotation(move));
+            position.makeMove(move);
+        }
+    }
+
+    private MoveCache.Entry cached() {
+        if (current == null) {
+            if (moveCache == null) {
+                moveCache = new MoveCache(MoveCache.DEFAULT_CAPACITY);
+            }
+            current = moveCache.get(position, legalMoves);
+        }
+        return current;
+    }
+
+    private void unshareRecord() {
+        if (recordShared) {
+            moves = new ArrayList<>(moves);
+            moveTimes = moveTimes.clone();
+            recordShared = false;
+        }
+    }
+
+    private static void appendNumber(Appendable out, long number) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(number);
+            return;
+        }
+        if (number < 0) {
+            out.append('-');
+        }
+        long divisor = 1;
+        while (Math.abs(number / divisor) >= 10) {
+            divisor *= 10;
         }
-        if (movesString.length() > 0 && (movesString.substring(movesString.length() - 1).equals("\n")
-                || movesString.substring(movesString.length() - 1).equals(" "))) {
-            movesString = movesString.substring(0, movesString.length() - 1);
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + Math.abs(number / divisor % 10)));
         }
-        return movesString;
     }
 }
@@ -0,0 +1,91 @@
+package chess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+public class GameSerializer {
+    private final Chess chess;
+    private final StringBuilder builder = new StringBuilder(256);
+    private final ByteBufferAppendable bytes = new ByteBufferAppendable();
+    private int writtenMoves;
+
+    public GameSerializer(Chess chess) {
+        this.chess = chess;
+    }
+
+    public CharSequence getBoardString() {
+        builder.setLength(0);
+        try {
+            chess.appendBoardString(builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return builder;
+    }
+
+    public void writeBoard(Appendable out) throws IOException {
+        chess.appendBoardString(out);
+    }
+
+    public void writeBoard(ByteBuffer out) {
+        bytes.buffer = out;
+        try {
+            chess.appendBoardString(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            bytes.buffer = null;
+        }
+    }
+
+    public void writeMoves(Appendable out) throws IOException {
+        chess.appendMovesString(out, 0);
+        writtenMoves = chess.getMoveCount();
+    }
+
+    public int writeNewMoves(Appendable out) throws IOException {
+        int written = chess.appendMovesString(out, writtenMoves);
+        writtenMoves = chess.getMoveCount();
+        return written;
+    }
+
+    public int writeNewMoves(ByteBuffer out) {
+        bytes.buffer = out;
+        try {
+            return writeNewMoves(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            bytes.buffer = null;
+        }
+    }
+
+    public void reset() {
+        writtenMoves = 0;
+    }
+
+    // board and move strings are plain ASCII, so every char is written as one byte
+    private static class ByteBufferAppendable implements Appendable {
+        private ByteBuffer buffer;
+
+        @Override
+        public Appendable append(CharSequence sequence) {
+            return append(sequence, 0, sequence.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence sequence, int start, int end) {
+            for (int i = start; i < end; i++) {
+                buffer.put((byte) sequence.charAt(i));
+            }
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) {
+            buffer.put((byte) c);
+            return this;
+        }
+    }
+}
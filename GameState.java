@@ -0,0 +1,11 @@
+package chess;
+
+public enum GameState {
+    ONGOING,
+    CHECKMATE,
+    STALEMATE,
+    REPETITION,
+    FIFTY_MOVE,
+    INSUFFICIENT_MATERIAL,
+    FLAG
+}
@@ -0,0 +1,74 @@
+package chess;
+
+public final class Move {
+    public static final int NONE = 0;
+    public static final int MAX_MOVES = 256;
+
+    public static final int QUIET = 0;
+    public static final int DOUBLE_PAWN_PUSH = 1;
+    public static final int KING_CASTLE = 2;
+    public static final int QUEEN_CASTLE = 3;
+    public static final int CAPTURE = 4;
+    public static final int EN_PASSANT = 5;
+    public static final int PROMOTION = 8;
+
+    private static final String PROMOTION_CHARACTERS = "nbrq";
+
+    private Move() {
+    }
+
+    // bits 0-5 from square, bits 6-11 to square, bits 12-15 flags
+    public static int encode(int from, int to, int flags) {
+        return from | to << 6 | flags << 12;
+    }
+
+    public static int encodePromotion(int from, int to, int promotionType, boolean capture) {
+        return encode(from, to, PROMOTION | (capture ? CAPTURE : 0) | (promotionType - Piece.KNIGHT));
+    }
+
+    public static int from(int move) {
+        return move & 63;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    public static int flags(int move) {
+        return (move >>> 12) & 15;
+    }
+
+    public static boolean isCapture(int move) {
+        return (flags(move) & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (flags(move) & PROMOTION) != 0;
+    }
+
+    public static boolean isCastling(int move) {
+        return flags(move) == KING_CASTLE || flags(move) == QUEEN_CASTLE;
+    }
+
+    public static int promotionType(int move) {
+        if (!isPromotion(move)) {
+            return Piece.NONE;
+        }
+        return Piece.KNIGHT + (flags(move) & 3);
+    }
+
+    public static String toString(int move) {
+        StringBuilder builder = new StringBuilder(5);
+        appendSquare(builder, from(move));
+        appendSquare(builder, to(move));
+        if (isPromotion(move)) {
+            builder.append(PROMOTION_CHARACTERS.charAt(flags(move) & 3));
+        }
+        return builder.toString();
+    }
+
+    private static void appendSquare(StringBuilder builder, int square) {
+        builder.append((char) ('a' + Bitboards.column(square)));
+        builder.append((char) ('1' + Bitboards.row(square)));
+    }
+}
@@ -0,0 +1,80 @@
+package chess;
+
+import java.util.Arrays;
+
+import chess.metrics.Instrumentation;
+import chess.metrics.OperationEvent;
+import chess.metrics.Operation;
+
+/*
+ * Legal targets and attack maps of the positions one game saw last, in a direct-mapped table: a position
+ * goes to slot hash & mask and replaces whatever was there. Each slot's entry is allocated the first time
+ * it is used and refilled in place after that, so a long game allocates nothing here once warm. Every
+ * game has its own cache and only touches it from the thread that owns the game, so there is no lock.
+ */
+final class MoveCache {
+    static final int DEFAULT_CAPACITY = 16;
+
+    private final Entry[] slots;
+    private final int mask;
+
+    // capacity is rounded down to a power of two
+    MoveCache(int capacity) {
+        slots = new Entry[Integer.highestOneBit(Math.max(1, capacity))];
+        mask = slots.length - 1;
+    }
+
+    // the entry stays valid until the next get that maps to the same slot
+    Entry get(Position position, int[] moves) {
+        long hash = position.getHash();
+        int index = (int) hash & mask;
+        Entry entry = slots[index];
+        if (entry == null) {
+            entry = new Entry();
+            slots[index] = entry;
+        } else if (entry.filled && entry.key == hash) {
+            return entry;
+        }
+        OperationEvent event = Instrumentation.start(Operation.MOVE_GENERATION);
+        entry.fill(position, moves);
+        Instrumentation.end(event);
+        return entry;
+    }
+
+    static final class Entry {
+        private final long[] targets = new long[64];
+        private final long[] attacks = new long[2];
+        private long key;
+        private boolean filled;
+        private int legalMoveCount;
+
+        private void fill(Position position, int[] moves) {
+            key = position.getHash();
+            filled = true;
+            Arrays.fill(targets, 0);
+            attacks[Piece.WHITE] = 0;
+            attacks[Piece.BLACK] = 0;
+            legalMoveCount = position.generateLegalMoves(moves);
+            for (int i = 0; i < legalMoveCount; i++) {
+                targets[Move.from(moves[i])] |= Bitboards.bit(Move.to(moves[i]));
+            }
+            for (int piece = 0; piece < 12; piece++) {
+                for (long bits = position.pieces(piece); bits != 0; bits &= bits - 1) {
+                    attacks[Piece.colour(piece)] |= position.attacksFrom(Long.numberOfTrailingZeros(bits));
+                }
+            }
+        }
+
+        boolean isLegal(int from, int to) {
+            return (targets[from] & Bitboards.bit(to)) != 0;
+        }
+
+        boolean isAttacked(int square, int byColour) {
+            return (attacks[byColour] & Bitboards.bit(square)) != 0;
+        }
+
+        int getLegalMoveCount() {
+            return legalMoveCount;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class Perft {
+    public static final String START_FEN = Position.START_FEN;
+    public static final String KIWIPETE_FEN = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    public static final String ENDGAME_FEN = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    public static final String PROMOTION_FEN = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    public static final String CASTLING_FEN = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+
+    private final long[] hashKeys;
+    private final long[] hashCounts;
+    private final ForkJoinPool pool;
+
+    public Perft() {
+        this(0, null);
+    }
+
+    public Perft(int hashEntries, ForkJoinPool pool) {
+        int size = hashEntries > 0 ? Integer.highestOneBit(hashEntries) : 0;
+        this.hashKeys = new long[size];
+        this.hashCounts = new long[size];
+        this.pool = pool;
+    }
+
+    public long perft(Position position, int depth) {
+        long nodes = 0;
+        for (long count : divide(position, depth).values()) {
+            nodes += count;
+        }
+        return depth == 0 ? 1 : nodes;
+    }
+
+    public Map<String, Long> divide(Position position, int depth) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        if (depth <= 0) {
+            return result;
+        }
+        int[] rootMoves = new int[Move.MAX_MOVES];
+        int count = position.generateLegalMoves(rootMoves);
+        if (pool == null) {
+            Walker walker = new Walker(depth);
+            for (int i = 0; i < count; i++) {
+                result.put(Move.toString(rootMoves[i]), walker.countAfter(position, rootMoves[i], depth - 1));
+            }
+            return result;
+        }
+        RootTask[] tasks = new RootTask[count];
+        for (int i = 0; i < count; i++) {
+            tasks[i] = new RootTask(position, rootMoves[i], depth - 1);
+            pool.execute(tasks[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            result.put(Move.toString(rootMoves[i]), tasks[i].join());
+        }
+        return result;
+    }
+
+    // entries are stored as (key ^ count, count) so a torn write from another thread never matches
+    private long probe(long key) {
+        int index = (int) key & (hashKeys.length - 1);
+        long count = hashCounts[index];
+        if ((hashKeys[index] ^ count) == key) {
+            return count;
+        }
+        return -1;
+    }
+
+    private void store(long key, long count) {
+        int index = (int) key & (hashKeys.length - 1);
+        hashKeys[index] = key ^ count;
+        hashCounts[index] = count;
+    }
+
+    private class RootTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Position position;
+        private final int move;
+        private final int depth;
+
+        RootTask(Position position, int move, int depth) {
+            this.position = new Position(position);
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            return new Walker(depth + 1).countAfter(position, move, depth);
+        }
+    }
+
+    private class Walker {
+        private final int[][] moves;
+
+        Walker(int maxDepth) {
+            moves = new int[maxDepth + 1][Move.MAX_MOVES];
+        }
+
+        long countAfter(Position position, int move, int depth) {
+            position.makeMove(move);
+            long nodes = count(position, depth);
+            position.unmakeMove();
+            return nodes;
+        }
+
+        private long count(Position position, int depth) {
+            if (depth == 0) {
+                return 1;
+            }
+            int count = position.generateLegalMoves(moves[depth]);
+            // bulk counting: the legal move count is the number of leaves one ply down
+            if (depth == 1) {
+                return count;
+            }
+            long key = 0;
+            if (hashKeys.length > 0) {
+                key = position.getHash() ^ depth * 0x9E3779B97F4A7C15L;
+                long cached = probe(key);
+                if (cached >= 0) {
+                    return cached;
+                }
+            }
+            long nodes = 0;
+            for (int i = 0; i < count; i++) {
+                nodes += countAfter(position, moves[depth][i], depth - 1);
+            }
+            if (hashKeys.length > 0) {
+                store(key, nodes);
+            }
+            return nodes;
+        }
+    }
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        String[] fens = { START_FEN, KIWIPETE_FEN, ENDGAME_FEN, PROMOTION_FEN, CASTLING_FEN };
+        if (args.length > 1) {
+            fens = new String[] { String.join(" ", Arrays.copyOfRange(args, 1, args.length)) };
+        }
+        Perft perft = new Perft(0, ForkJoinPool.commonPool());
+        for (String fen : fens) {
+            long start = System.nanoTime();
+            long nodes = perft.perft(Position.fromFen(fen), depth);
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            System.out.println(fen);
+            System.out.println("depth " + depth + ": " + nodes + " nodes, " + elapsed / 1_000_000 + " ms, "
+                    + nodes * 1_000_000_000L / elapsed + " nodes/s");
+        }
+    }
+}
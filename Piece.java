@@ -0,0 +1,47 @@
+package chess;
+
+public final class Piece {
+    public static final int NONE = -1;
+
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    public static final int WHITE = 0;
+    public static final int BLACK = 1;
+
+    private static final String CHARACTERS = "PNBRQKpnbrqk";
+
+    private Piece() {
+    }
+
+    public static int of(int colour, int type) {
+        return colour * 6 + type;
+    }
+
+    public static int type(int piece) {
+        return piece % 6;
+    }
+
+    public static int colour(int piece) {
+        return piece / 6;
+    }
+
+    public static boolean isWhite(int piece) {
+        return piece < 6;
+    }
+
+    public static char toChar(int piece) {
+        if (piece == NONE) {
+            return ' ';
+        }
+        return CHARACTERS.charAt(piece);
+    }
+
+    public static int fromChar(char c) {
+        return CHARACTERS.indexOf(c);
+    }
+}
@@ -0,0 +1,785 @@
+package chess;
+
+import java.util.Arrays;
+
+import chess.metrics.Instrumentation;
+import chess.metrics.Operation;
+import chess.metrics.OperationEvent;
+
+public class Position {
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    private static final int[] CASTLING_MASKS = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASKS, 15);
+        CASTLING_MASKS[0] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASKS[4] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASKS[7] &= ~WHITE_KINGSIDE;
+        CASTLING_MASKS[56] &= ~BLACK_QUEENSIDE;
+        CASTLING_MASKS[60] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASKS[63] &= ~BLACK_KINGSIDE;
+    }
+
+    private final long[] pieces = new long[12];
+    private final long[] colours = new long[2];
+    private final int[] squares = new int[64];
+    private int sideToMove = Piece.WHITE;
+    private int castlingRights;
+    private int enPassantSquare = -1;
+    private int halfmoveClock;
+    private int fullmoveNumber = 1;
+    private final int[] kingSquares = { 64, 64 };
+    private boolean checkInfoValid;
+    private long checkers;
+    private long pinned;
+    // one packed entry per played move: move, captured piece, castling rights, en passant square, halfmove clock
+    private long[] history;
+    private long[] hashHistory;
+    private int historySize;
+    // set while the history arrays are shared with a fork, whichever side writes first copies them
+    private boolean historyShared;
+    private long hash;
+
+    public Position() {
+        Arrays.fill(squares, Piece.NONE);
+        history = new long[256];
+        hashHistory = new long[256];
+    }
+
+    public Position(Position other) {
+        copyFrom(other);
+    }
+
+    // a position on borrowed history arrays, whoever writes to them first has to copy them
+    private Position(long[] history, long[] hashHistory, int historySize) {
+        this.history = history;
+        this.hashHistory = hashHistory;
+        this.historySize = historySize;
+        historyShared = true;
+    }
+
+    // constant time: the move history is shared until either position makes its next move
+    public Position fork() {
+        Position fork = new Position(history, hashHistory, historySize);
+        fork.copyBoard(this);
+        historyShared = true;
+        return fork;
+    }
+
+    public void copyFrom(Position other) {
+        copyBoard(other);
+        if (historyShared || history == null || history.length < other.history.length) {
+            history = new long[other.history.length];
+            hashHistory = new long[other.history.length];
+            historyShared = false;
+        }
+        System.arraycopy(other.history, 0, history, 0, other.historySize);
+        System.arraycopy(other.hashHistory, 0, hashHistory, 0, other.historySize);
+        historySize = other.historySize;
+    }
+
+    private void copyBoard(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.colours, 0, colours, 0, colours.length);
+        System.arraycopy(other.squares, 0, squares, 0, squares.length);
+        sideToMove = other.sideToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        kingSquares[Piece.WHITE] = other.kingSquares[Piece.WHITE];
+        kingSquares[Piece.BLACK] = other.kingSquares[Piece.BLACK];
+        checkInfoValid = false;
+        hash = other.hash;
+    }
+
+    public static Position fromFen(String fen) {
+        Position position = new Position();
+        int length = fen.length();
+        int i = skipSpaces(fen, 0);
+        int row = 7;
+        int column = 0;
+        for (; i < length && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                row--;
+                column = 0;
+            } else if (c >= '1' && c <= '8') {
+                column += c - '0';
+            } else {
+                int piece = Piece.fromChar(c);
+                if (piece == Piece.NONE || row < 0 || column > 7) {
+                    throw new IllegalArgumentException("Invalid FEN: " + fen);
+                }
+                position.put(piece, Bitboards.square(row, column++));
+            }
+        }
+        if (Long.bitCount(position.pieces[Piece.of(Piece.WHITE, Piece.KING)]) != 1
+                || Long.bitCount(position.pieces[Piece.of(Piece.BLACK, Piece.KING)]) != 1) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+
+        i = skipSpaces(fen, i);
+        if (i >= length || (fen.charAt(i) != 'w' && fen.charAt(i) != 'b')) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+        position.sideToMove = fen.charAt(i++) == 'w' ? Piece.WHITE : Piece.BLACK;
+
+        i = skipSpaces(fen, i);
+        for (; i < length && fen.charAt(i) != ' '; i++) {
+            int index = "KQkq".indexOf(fen.charAt(i));
+            if (index >= 0) {
+                position.castlingRights |= 1 << index;
+            }
+        }
+        position.castlingRights &= position.validCastlingRights();
+
+        i = skipSpaces(fen, i);
+        if (i + 1 < length && fen.charAt(i) >= 'a' && fen.charAt(i) <= 'h' && fen.charAt(i + 1) >= '1'
+                && fen.charAt(i + 1) <= '8') {
+            int square = Bitboards.square(fen.charAt(i + 1) - '1', fen.charAt(i) - 'a');
+            // like makeMove, only keep the square when a pawn can actually capture there
+            if ((Bitboards.pawnAttacks(position.sideToMove ^ 1, square)
+                    & position.pieces[Piece.of(position.sideToMove, Piece.PAWN)]) != 0) {
+                position.enPassantSquare = square;
+            }
+        }
+
+        i = skipSpaces(fen, fieldEnd(fen, i));
+        if (i < length) {
+            position.halfmoveClock = Integer.parseInt(fen, i, fieldEnd(fen, i), 10);
+            i = skipSpaces(fen, fieldEnd(fen, i));
+            if (i < length) {
+                position.fullmoveNumber = Math.max(1, Integer.parseInt(fen, i, fieldEnd(fen, i), 10));
+            }
+        }
+        position.hash = position.computeHash();
+        return position;
+    }
+
+    private static int skipSpaces(String fen, int index) {
+        while (index < fen.length() && fen.charAt(index) == ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    private static int fieldEnd(String fen, int index) {
+        while (index < fen.length() && fen.charAt(index) != ' ') {
+            index++;
+        }
+        return index;
+    }
+
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        for (int row = 7; row >= 0; row--) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                int piece = squares[Bitboards.square(row, column)];
+                if (piece == Piece.NONE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                fen.append(Piece.toChar(piece));
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (row > 0) {
+                fen.append('/');
+            }
+        }
+        fen.append(sideToMove == Piece.WHITE ? " w " : " b ");
+        if (castlingRights == 0) {
+            fen.append('-');
+        }
+        for (int i = 0; i < 4; i++) {
+            if ((castlingRights & 1 << i) != 0) {
+                fen.append("KQkq".charAt(i));
+            }
+        }
+        fen.append(' ');
+        if (enPassantSquare < 0) {
+            fen.append('-');
+        } else {
+            fen.append((char) ('a' + Bitboards.column(enPassantSquare)));
+            fen.append((char) ('1' + Bitboards.row(enPassantSquare)));
+        }
+        fen.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+        return fen.toString();
+    }
+
+    private int validCastlingRights() {
+        int rights = 0;
+        int whiteRook = Piece.of(Piece.WHITE, Piece.ROOK);
+        int blackRook = Piece.of(Piece.BLACK, Piece.ROOK);
+        if (squares[4] == Piece.of(Piece.WHITE, Piece.KING)) {
+            rights |= squares[7] == whiteRook ? WHITE_KINGSIDE : 0;
+            rights |= squares[0] == whiteRook ? WHITE_QUEENSIDE : 0;
+        }
+        if (squares[60] == Piece.of(Piece.BLACK, Piece.KING)) {
+            rights |= squares[63] == blackRook ? BLACK_KINGSIDE : 0;
+            rights |= squares[56] == blackRook ? BLACK_QUEENSIDE : 0;
+        }
+        return rights;
+    }
+
+    long computeHash() {
+        long hash = 0;
+        for (int square = 0; square < 64; square++) {
+            if (squares[square] != Piece.NONE) {
+                hash ^= Zobrist.piece(squares[square], square);
+            }
+        }
+        hash ^= Zobrist.castling(castlingRights);
+        hash ^= Zobrist.enPassant(enPassantSquare);
+        if (sideToMove == Piece.BLACK) {
+            hash ^= Zobrist.side();
+        }
+        return hash;
+    }
+
+    public static Position startPosition() {
+        int[] backRank = { Piece.ROOK, Piece.KNIGHT, Piece.BISHOP, Piece.QUEEN, Piece.KING, Piece.BISHOP,
+                Piece.KNIGHT, Piece.ROOK };
+        Position position = new Position();
+        for (int i = 0; i < 8; i++) {
+            position.put(Piece.of(Piece.WHITE, backRank[i]), i);
+            position.put(Piece.of(Piece.WHITE, Piece.PAWN), 8 + i);
+            position.put(Piece.of(Piece.BLACK, Piece.PAWN), 48 + i);
+            position.put(Piece.of(Piece.BLACK, backRank[i]), 56 + i);
+        }
+        position.castlingRights = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+        position.hash = position.computeHash();
+        return position;
+    }
+
+    // a board holding only the given pieces, without castling rights, en passant or history
+    public void reset(int sideToMove, int[] placedPieces, int[] placedSquares, int count) {
+        Arrays.fill(pieces, 0);
+        colours[Piece.WHITE] = 0;
+        colours[Piece.BLACK] = 0;
+        Arrays.fill(squares, Piece.NONE);
+        kingSquares[Piece.WHITE] = 64;
+        kingSquares[Piece.BLACK] = 64;
+        for (int i = 0; i < count; i++) {
+            put(placedPieces[i], placedSquares[i]);
+        }
+        this.sideToMove = sideToMove;
+        castlingRights = 0;
+        enPassantSquare = -1;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+        historySize = 0;
+        checkInfoValid = false;
+        hash = computeHash();
+    }
+
+    public int pieceAt(int square) {
+        return squares[square];
+    }
+
+    public long pieces(int piece) {
+        return pieces[piece];
+    }
+
+    public long occupancy(int colour) {
+        return colours[colour];
+    }
+
+    public long occupancy() {
+        return colours[Piece.WHITE] | colours[Piece.BLACK];
+    }
+
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public boolean isWhiteToMove() {
+        return sideToMove == Piece.WHITE;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public int kingSquare(int colour) {
+        return kingSquares[colour];
+    }
+
+    public boolean isAttacked(int square, int byColour) {
+        return attackersTo(square, byColour, occupancy()) != 0;
+    }
+
+    public long attackersTo(int square, int byColour, long occupied) {
+        int offset = Piece.of(byColour, Piece.PAWN);
+        return (Bitboards.pawnAttacks(byColour ^ 1, square) & pieces[offset + Piece.PAWN])
+                | (Bitboards.knightAttacks(square) & pieces[offset + Piece.KNIGHT])
+                | (Bitboards.kingAttacks(square) & pieces[offset + Piece.KING])
+                | (Bitboards.bishopAttacks(square, occupied)
+                        & (pieces[offset + Piece.BISHOP] | pieces[offset + Piece.QUEEN]))
+                | (Bitboards.rookAttacks(square, occupied)
+                        & (pieces[offset + Piece.ROOK] | pieces[offset + Piece.QUEEN]));
+    }
+
+    public boolean isInCheck() {
+        return getCheckers() != 0;
+    }
+
+    public long getCheckers() {
+        updateCheckInfo();
+        return checkers;
+    }
+
+    public long getPinned() {
+        updateCheckInfo();
+        return pinned;
+    }
+
+    private void updateCheckInfo() {
+        if (checkInfoValid) {
+            return;
+        }
+        OperationEvent event = Instrumentation.start(Operation.CHECK_DETECTION);
+        int us = sideToMove;
+        int them = us ^ 1;
+        int king = kingSquares[us];
+        long occupied = occupancy();
+        checkers = attackersTo(king, them, occupied);
+        pinned = 0;
+        long snipers = (Bitboards.rookAttacks(king, 0)
+                & (pieces[Piece.of(them, Piece.ROOK)] | pieces[Piece.of(them, Piece.QUEEN)]))
+                | (Bitboards.bishopAttacks(king, 0)
+                        & (pieces[Piece.of(them, Piece.BISHOP)] | pieces[Piece.of(them, Piece.QUEEN)]));
+        while (snipers != 0) {
+            long blockers = Bitboards.between(king, Long.numberOfTrailingZeros(snipers)) & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & colours[us];
+            }
+            snipers &= snipers - 1;
+        }
+        checkInfoValid = true;
+        Instrumentation.end(event);
+    }
+
+    public long attacksFrom(int square) {
+        int piece = squares[square];
+        if (piece == Piece.NONE) {
+            return 0;
+        }
+        switch (Piece.type(piece)) {
+            case Piece.PAWN:
+                return Bitboards.pawnAttacks(Piece.colour(piece), square);
+            case Piece.KNIGHT:
+                return Bitboards.knightAttacks(square);
+            case Piece.BISHOP:
+                return Bitboards.bishopAttacks(square, occupancy());
+            case Piece.ROOK:
+                return Bitboards.rookAttacks(square, occupancy());
+            case Piece.QUEEN:
+                return Bitboards.queenAttacks(square, occupancy());
+        }
+        return Bitboards.kingAttacks(square);
+    }
+
+    public boolean isLegalMove(int from, int to) {
+        int piece = squares[from];
+        if (piece == Piece.NONE || Piece.colour(piece) != sideToMove || from == to) {
+            return false;
+        }
+        if ((colours[sideToMove] & Bitboards.bit(to)) != 0) {
+            return false;
+        }
+        if (!isPseudoLegal(piece, from, to)) {
+            return false;
+        }
+        return isLegal(encodeMove(from, to, Piece.QUEEN));
+    }
+
+    private boolean isPseudoLegal(int piece, int from, int to) {
+        switch (Piece.type(piece)) {
+            case Piece.PAWN:
+                return isValidPawnMovement(from, to);
+            case Piece.KING:
+                return (Bitboards.kingAttacks(from) & Bitboards.bit(to)) != 0 || isValidCastling(from, to);
+        }
+        return (attacksFrom(from) & Bitboards.bit(to)) != 0;
+    }
+
+    private boolean isValidPawnMovement(int from, int to) {
+        int forward = sideToMove == Piece.WHITE ? 8 : -8;
+        int startRow = sideToMove == Piece.WHITE ? 1 : 6;
+        // move
+        if (to == from + forward) {
+            return squares[to] == Piece.NONE;
+        }
+        // double move
+        if (to == from + 2 * forward) {
+            return Bitboards.row(from) == startRow && squares[from + forward] == Piece.NONE
+                    && squares[to] == Piece.NONE;
+        }
+        // capture and en passant
+        if ((Bitboards.pawnAttacks(sideToMove, from) & Bitboards.bit(to)) != 0) {
+            return (colours[sideToMove ^ 1] & Bitboards.bit(to)) != 0 || to == enPassantSquare;
+        }
+        return false;
+    }
+
+    private boolean isValidCastling(int from, int to) {
+        int rank = sideToMove == Piece.WHITE ? 0 : 56;
+        if (from != rank + 4 || (to != rank + 6 && to != rank + 2)) {
+            return false;
+        }
+        boolean kingside = to == rank + 6;
+        int right = sideToMove == Piece.WHITE ? (kingside ? WHITE_KINGSIDE : WHITE_QUEENSIDE)
+                : (kingside ? BLACK_KINGSIDE : BLACK_QUEENSIDE);
+        int rookSquare = kingside ? rank + 7 : rank;
+        if ((castlingRights & right) == 0 || squares[rookSquare] != Piece.of(sideToMove, Piece.ROOK)) {
+            return false;
+        }
+        long between = kingside ? Bitboards.bit(rank + 5) | Bitboards.bit(rank + 6)
+                : Bitboards.bit(rank + 1) | Bitboards.bit(rank + 2) | Bitboards.bit(rank + 3);
+        if ((occupancy() & between) != 0) {
+            return false;
+        }
+        int them = sideToMove ^ 1;
+        return getCheckers() == 0 && !isAttacked(kingside ? rank + 5 : rank + 3, them)
+                && !isAttacked(to, them);
+    }
+
+    public int generateLegalMoves(int[] moves) {
+        return filterLegal(moves, generateMoves(moves, -1L));
+    }
+
+    public int generateLegalMoves(int from, int[] moves) {
+        return filterLegal(moves, generateMoves(moves, Bitboards.bit(from)));
+    }
+
+    int generateLegalMoves(long fromMask, int[] moves) {
+        return filterLegal(moves, generateMoves(moves, fromMask));
+    }
+
+    // captures and promotions only, for searches that settle tactics before evaluating
+    public int generateLegalCaptures(int[] moves) {
+        int count = generateMoves(moves, -1L);
+        int noisy = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if ((Move.isCapture(move) || Move.isPromotion(move)) && isLegal(move)) {
+                moves[noisy++] = move;
+            }
+        }
+        return noisy;
+    }
+
+    private int filterLegal(int[] moves, int count) {
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (isLegal(move)) {
+                moves[legal++] = move;
+            }
+        }
+        return legal;
+    }
+
+    private int generateMoves(int[] moves, long fromMask) {
+        int us = sideToMove;
+        long own = colours[us];
+        long enemy = colours[us ^ 1];
+        long occupied = own | enemy;
+        int count = 0;
+        // in double check only the king can move
+        if (Long.bitCount(getCheckers()) > 1) {
+            fromMask &= pieces[Piece.of(us, Piece.KING)];
+        }
+
+        int forward = us == Piece.WHITE ? 8 : -8;
+        int startRow = us == Piece.WHITE ? 1 : 6;
+        long pawns = pieces[Piece.of(us, Piece.PAWN)] & fromMask;
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            int to = from + forward;
+            if (squares[to] == Piece.NONE) {
+                count = addPawnMoves(moves, count, from, to, false);
+                if (Bitboards.row(from) == startRow && squares[to + forward] == Piece.NONE) {
+                    moves[count++] = Move.encode(from, to + forward, Move.DOUBLE_PAWN_PUSH);
+                }
+            }
+            long captures = Bitboards.pawnAttacks(us, from) & enemy;
+            while (captures != 0) {
+                count = addPawnMoves(moves, count, from, Long.numberOfTrailingZeros(captures), true);
+                captures &= captures - 1;
+            }
+            if (enPassantSquare >= 0 && (Bitboards.pawnAttacks(us, from) & Bitboards.bit(enPassantSquare)) != 0) {
+                moves[count++] = Move.encode(from, enPassantSquare, Move.EN_PASSANT);
+            }
+        }
+
+        for (int type = Piece.KNIGHT; type <= Piece.KING; type++) {
+            long movers = pieces[Piece.of(us, type)] & fromMask;
+            while (movers != 0) {
+                int from = Long.numberOfTrailingZeros(movers);
+                movers &= movers - 1;
+                long targets = attacksFrom(from) & ~own;
+                while (targets != 0) {
+                    int to = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    int flags = (enemy & Bitboards.bit(to)) != 0 ? Move.CAPTURE : Move.QUIET;
+                    moves[count++] = Move.encode(from, to, flags);
+                }
+            }
+        }
+
+        int rank = us == Piece.WHITE ? 0 : 56;
+        if ((pieces[Piece.of(us, Piece.KING)] & fromMask & Bitboards.bit(rank + 4)) != 0) {
+            if (isValidCastling(rank + 4, rank + 6)) {
+                moves[count++] = Move.encode(rank + 4, rank + 6, Move.KING_CASTLE);
+            }
+            if (isValidCastling(rank + 4, rank + 2)) {
+                moves[count++] = Move.encode(rank + 4, rank + 2, Move.QUEEN_CASTLE);
+            }
+        }
+        return count;
+    }
+
+    private int addPawnMoves(int[] moves, int count, int from, int to, boolean capture) {
+        if (Bitboards.row(to) == 0 || Bitboards.row(to) == 7) {
+            for (int type = Piece.QUEEN; type >= Piece.KNIGHT; type--) {
+                moves[count++] = Move.encodePromotion(from, to, type, capture);
+            }
+        } else {
+            moves[count++] = Move.encode(from, to, capture ? Move.CAPTURE : Move.QUIET);
+        }
+        return count;
+    }
+
+    private boolean isLegal(int move) {
+        updateCheckInfo();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int us = sideToMove;
+        int king = kingSquares[us];
+        if (from == king) {
+            // castling was already checked square by square when it was generated
+            return Move.isCastling(move)
+                    || attackersTo(to, us ^ 1, occupancy() ^ Bitboards.bit(from)) == 0;
+        }
+        if (Move.flags(move) == Move.EN_PASSANT) {
+            // two pawns leave the rank at once, so pins cannot be read off the pinned mask
+            makeMove(move);
+            boolean kingUnderAttack = isAttacked(king, us ^ 1);
+            unmakeMove();
+            return !kingUnderAttack;
+        }
+        if (checkers != 0) {
+            if (Long.bitCount(checkers) > 1) {
+                return false;
+            }
+            long evasions = checkers | Bitboards.between(king, Long.numberOfTrailingZeros(checkers));
+            if ((evasions & Bitboards.bit(to)) == 0) {
+                return false;
+            }
+        }
+        return (pinned & Bitboards.bit(from)) == 0 || (Bitboards.line(king, from) & Bitboards.bit(to)) != 0;
+    }
+
+    public int encodeMove(int from, int to, int promotionType) {
+        int type = Piece.type(squares[from]);
+        boolean capture = squares[to] != Piece.NONE;
+        if (type == Piece.PAWN) {
+            if (Bitboards.row(to) == 0 || Bitboards.row(to) == 7) {
+                return Move.encodePromotion(from, to, promotionType, capture);
+            }
+            if (Math.abs(from - to) == 16) {
+                return Move.encode(from, to, Move.DOUBLE_PAWN_PUSH);
+            }
+            if (to == enPassantSquare && Bitboards.column(from) != Bitboards.column(to)) {
+                return Move.encode(from, to, Move.EN_PASSANT);
+            }
+        } else if (type == Piece.KING && Math.abs(from - to) == 2) {
+            return Move.encode(from, to, to > from ? Move.KING_CASTLE : Move.QUEEN_CASTLE);
+        } else if (type == Piece.KING && squares[to] == Piece.of(sideToMove, Piece.ROOK)
+                && Piece.colour(squares[from]) == sideToMove) {
+            // castling written as the king taking its own rook, as opening books and some GUIs do
+            return to > from ? Move.encode(from, from + 2, Move.KING_CASTLE)
+                    : Move.encode(from, from - 2, Move.QUEEN_CASTLE);
+        }
+        return Move.encode(from, to, capture ? Move.CAPTURE : Move.QUIET);
+    }
+
+    public void makeMove(int move) {
+        if (historySize == history.length || historyShared) {
+            int length = historySize == history.length ? history.length * 2 : history.length;
+            history = Arrays.copyOf(history, length);
+            hashHistory = Arrays.copyOf(hashHistory, length);
+            historyShared = false;
+        }
+        hashHistory[historySize] = hash;
+        hash ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int us = sideToMove;
+        int them = us ^ 1;
+        int piece = squares[from];
+
+        int captured = Piece.NONE;
+        if (flags == Move.EN_PASSANT) {
+            captured = remove(to + (us == Piece.WHITE ? -8 : 8));
+        } else if ((flags & Move.CAPTURE) != 0) {
+            captured = remove(to);
+        }
+        history[historySize++] = (long) move | (long) (captured + 1) << 16 | (long) castlingRights << 20
+                | (long) (enPassantSquare + 1) << 24 | (long) halfmoveClock << 32;
+
+        remove(from);
+        put((flags & Move.PROMOTION) != 0 ? Piece.of(us, Move.promotionType(move)) : piece, to);
+        if (flags == Move.KING_CASTLE) {
+            put(remove(to + 1), to - 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            put(remove(to - 2), to + 1);
+        }
+
+        castlingRights &= CASTLING_MASKS[from] & CASTLING_MASKS[to];
+        enPassantSquare = -1;
+        if (flags == Move.DOUBLE_PAWN_PUSH) {
+            int skipped = (from + to) / 2;
+            if ((Bitboards.pawnAttacks(us, skipped) & pieces[Piece.of(them, Piece.PAWN)]) != 0) {
+                enPassantSquare = skipped;
+            }
+        }
+        if (Piece.type(piece) == Piece.PAWN || captured != Piece.NONE) {
+            halfmoveClock = 0;
+        } else {
+            halfmoveClock++;
+        }
+        if (us == Piece.BLACK) {
+            fullmoveNumber++;
+        }
+        sideToMove = them;
+        hash ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare) ^ Zobrist.side();
+        checkInfoValid = false;
+    }
+
+    public void unmakeMove() {
+        long entry = history[--historySize];
+        int move = (int) entry & 0xFFFF;
+        int captured = (int) (entry >>> 16 & 15) - 1;
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        sideToMove ^= 1;
+        int us = sideToMove;
+        if (us == Piece.BLACK) {
+            fullmoveNumber--;
+        }
+
+        int piece = remove(to);
+        put((flags & Move.PROMOTION) != 0 ? Piece.of(us, Piece.PAWN) : piece, from);
+        if (flags == Move.KING_CASTLE) {
+            put(remove(to - 1), to + 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            put(remove(to + 1), to - 2);
+        }
+        if (flags == Move.EN_PASSANT) {
+            put(captured, to + (us == Piece.WHITE ? -8 : 8));
+        } else if (captured != Piece.NONE) {
+            put(captured, to);
+        }
+
+        castlingRights = (int) (entry >>> 20 & 15);
+        enPassantSquare = (int) (entry >>> 24 & 127) - 1;
+        halfmoveClock = (int) (entry >>> 32);
+        hash = hashHistory[historySize];
+        checkInfoValid = false;
+    }
+
+    public int repetitionCount() {
+        int count = 1;
+        // positions before the last capture or pawn move can never come back
+        int oldest = Math.max(0, historySize - halfmoveClock);
+        for (int ply = historySize - 2; ply >= oldest; ply -= 2) {
+            if (hashHistory[ply] == hash) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isFiftyMoveRule() {
+        return halfmoveClock >= 100;
+    }
+
+    public boolean hasInsufficientMaterial() {
+        long heavy = pieces[Piece.of(Piece.WHITE, Piece.PAWN)] | pieces[Piece.of(Piece.BLACK, Piece.PAWN)]
+                | pieces[Piece.of(Piece.WHITE, Piece.ROOK)] | pieces[Piece.of(Piece.BLACK, Piece.ROOK)]
+                | pieces[Piece.of(Piece.WHITE, Piece.QUEEN)] | pieces[Piece.of(Piece.BLACK, Piece.QUEEN)];
+        if (heavy != 0) {
+            return false;
+        }
+        long knights = pieces[Piece.of(Piece.WHITE, Piece.KNIGHT)] | pieces[Piece.of(Piece.BLACK, Piece.KNIGHT)];
+        long bishops = pieces[Piece.of(Piece.WHITE, Piece.BISHOP)] | pieces[Piece.of(Piece.BLACK, Piece.BISHOP)];
+        if (Long.bitCount(knights | bishops) <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & Bitboards.LIGHT_SQUARES) == 0 || (bishops & ~Bitboards.LIGHT_SQUARES) == 0);
+    }
+
+    public int getMove(int ply) {
+        return (int) history[ply] & 0xFFFF;
+    }
+
+    public int getPly() {
+        return historySize;
+    }
+
+    private void put(int piece, int square) {
+        long bit = Bitboards.bit(square);
+        pieces[piece] |= bit;
+        colours[Piece.colour(piece)] |= bit;
+        squares[square] = piece;
+        hash ^= Zobrist.piece(piece, square);
+        if (Piece.type(piece) == Piece.KING) {
+            kingSquares[Piece.colour(piece)] = square;
+        }
+    }
+
+    private int remove(int square) {
+        int piece = squares[square];
+        long bit = Bitboards.bit(square);
+        pieces[piece] &= ~bit;
+        colours[Piece.colour(piece)] &= ~bit;
+        squares[square] = Piece.NONE;
+        hash ^= Zobrist.piece(piece, square);
+        return piece;
+    }
+}
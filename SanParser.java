@@ -0,0 +1,100 @@
+package chess;
+
+public final class SanParser {
+
+    private SanParser() {
+    }
+
+    public static int parse(Position position, CharSequence san, int[] buffer) {
+        return parse(position, san, 0, san.length(), buffer);
+    }
+
+    // returns the matching legal move, or Move.NONE when the text is malformed, illegal or ambiguous
+    public static int parse(Position position, CharSequence san, int start, int end, int[] buffer) {
+        while (end > start && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        if (end - start < 2) {
+            return Move.NONE;
+        }
+        int us = position.getSideToMove();
+        if (san.charAt(start) == 'O' || san.charAt(start) == '0') {
+            int count = position.generateLegalMoves(position.pieces(Piece.of(us, Piece.KING)), buffer);
+            int flags = end - start >= 5 ? Move.QUEEN_CASTLE : Move.KING_CASTLE;
+            for (int i = 0; i < count; i++) {
+                if (Move.flags(buffer[i]) == flags) {
+                    return buffer[i];
+                }
+            }
+            return Move.NONE;
+        }
+
+        int type = Piece.PAWN;
+        int index = Piece.fromChar(san.charAt(start));
+        if (index >= Piece.PAWN && index <= Piece.KING) {
+            type = index;
+            start++;
+        }
+
+        int promotionType = Piece.NONE;
+        int last = san.charAt(end - 1);
+        if (type == Piece.PAWN && "NBRQ".indexOf(last) >= 0) {
+            promotionType = Piece.fromChar((char) last);
+            end--;
+            if (end > start && san.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+        if (end - start < 2) {
+            return Move.NONE;
+        }
+        int toColumn = san.charAt(end - 2) - 'a';
+        int toRow = san.charAt(end - 1) - '1';
+        if (toColumn < 0 || toColumn > 7 || toRow < 0 || toRow > 7) {
+            return Move.NONE;
+        }
+        int to = Bitboards.square(toRow, toColumn);
+
+        int fromColumn = -1;
+        int fromRow = -1;
+        for (int i = start; i < end - 2; i++) {
+            char c = san.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromColumn = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRow = c - '1';
+            } else if (c != 'x' && c != '-' && c != ':') {
+                return Move.NONE;
+            }
+        }
+
+        int count = position.generateLegalMoves(position.pieces(Piece.of(us, type)), buffer);
+        int match = Move.NONE;
+        int matches = 0;
+        int quietPawnMatch = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            int from = Move.from(move);
+            if (Move.to(move) != to || Piece.type(position.pieceAt(from)) != type
+                    || Move.promotionType(move) != promotionType
+                    || (fromColumn >= 0 && Bitboards.column(from) != fromColumn)
+                    || (fromRow >= 0 && Bitboards.row(from) != fromRow)) {
+                continue;
+            }
+            match = move;
+            matches++;
+            if (type == Piece.PAWN && Bitboards.column(from) == toColumn) {
+                quietPawnMatch = move;
+            }
+        }
+        if (matches == 1) {
+            return match;
+        }
+        // legacy archives and some other producers write pawn captures without the source file, so "e5" may
+        // be a push or a capture
+        if (type == Piece.PAWN && fromColumn < 0 && quietPawnMatch != Move.NONE) {
+            return quietPawnMatch;
+        }
+        return Move.NONE;
+    }
+}
@@ -0,0 +1,45 @@
+package chess;
+
+public final class TimeControl {
+    private final long initialMillis;
+    private final long incrementMillis;
+    private final long delayMillis;
+
+    public TimeControl(long initialMillis, long incrementMillis, long delayMillis) {
+        if (initialMillis < 0 || incrementMillis < 0 || delayMillis < 0) {
+            throw new IllegalArgumentException("Negative time control");
+        }
+        this.initialMillis = initialMillis;
+        this.incrementMillis = incrementMillis;
+        this.delayMillis = delayMillis;
+    }
+
+    public static TimeControl ofSeconds(int initialSeconds) {
+        return new TimeControl(initialSeconds * 1000L, 0, 0);
+    }
+
+    public static TimeControl withIncrement(int initialSeconds, int incrementSeconds) {
+        return new TimeControl(initialSeconds * 1000L, incrementSeconds * 1000L, 0);
+    }
+
+    public static TimeControl withDelay(int initialSeconds, int delaySeconds) {
+        return new TimeControl(initialSeconds * 1000L, 0, delaySeconds * 1000L);
+    }
+
+    public long getInitialMillis() {
+        return initialMillis;
+    }
+
+    public long getIncrementMillis() {
+        return incrementMillis;
+    }
+
+    public long getDelayMillis() {
+        return delayMillis;
+    }
+
+    // the part of a think time that is taken off the clock, before the increment is added back
+    long charge(long elapsedMillis) {
+        return Math.max(0, elapsedMillis - delayMillis);
+    }
+}
@@ -0,0 +1,9 @@
+package chess;
+
+@FunctionalInterface
+public interface TimeSource {
+    TimeSource SYSTEM = System::nanoTime;
+
+    // monotonic, only differences between two readings are meaningful
+    long nanoTime();
+}
@@ -0,0 +1,55 @@
+package chess;
+
+public final class Zobrist {
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_FILE = new long[8];
+    private static final long SIDE;
+
+    private static long seed = 0x9E3779B97F4A7C15L;
+
+    static {
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                PIECE_SQUARE[piece][square] = nextRandom();
+            }
+        }
+        for (int rights = 0; rights < 16; rights++) {
+            CASTLING[rights] = nextRandom();
+        }
+        for (int file = 0; file < 8; file++) {
+            EN_PASSANT_FILE[file] = nextRandom();
+        }
+        SIDE = nextRandom();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long piece(int piece, int square) {
+        return PIECE_SQUARE[piece][square];
+    }
+
+    public static long castling(int castlingRights) {
+        return CASTLING[castlingRights];
+    }
+
+    public static long enPassant(int square) {
+        if (square < 0) {
+            return 0;
+        }
+        return EN_PASSANT_FILE[Bitboards.column(square)];
+    }
+
+    public static long side() {
+        return SIDE;
+    }
+
+    // splitmix64, so the keys are the same in every JVM
+    private static long nextRandom() {
+        long z = (seed += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
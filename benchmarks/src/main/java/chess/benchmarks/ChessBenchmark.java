@@ -0,0 +1,112 @@
+package chess.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chess.Chess;
+import chess.Move;
+
+/*
+ * The Chess calls a game server makes on every request. Calls that take coordinates cycle through every
+ * from/to pair or square so no single answer gets predicted; move benchmarks play each legal move in turn.
+ * Validation answers from a per-game cache after the first call in a position: the plain benchmarks measure
+ * those repeated calls, the cold ones the first call in a fresh position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class ChessBenchmark {
+    @Param({ Games.OPENING, Games.MIDDLEGAME, Games.LONG_ENDGAME })
+    public String game;
+
+    private Chess chess;
+    private int[] legalMoves;
+    private int legalMoveCount;
+    // the game after each of its legal moves, forked again for every cold call so nothing is cached yet
+    private Chess[] positions;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        chess = Games.build(game);
+        legalMoves = new int[Move.MAX_MOVES];
+        legalMoveCount = chess.generateLegalMoves(legalMoves);
+        positions = new Chess[legalMoveCount];
+        for (int i = 0; i < legalMoveCount; i++) {
+            positions[i] = chess.fork();
+            positions[i].move(legalMoves[i], 0);
+        }
+        // the first call builds the notation of the whole history, the benchmark measures the calls after it
+        chess.getMovesString();
+    }
+
+    @Benchmark
+    public boolean isValidAction() {
+        int pair = next++ & 4095;
+        return chess.isValidAction(pair >>> 9, pair >>> 6 & 7, pair >>> 3 & 7, pair & 7);
+    }
+
+    @Benchmark
+    public boolean fieldIsThreatened() {
+        int square = next++ & 127;
+        return chess.fieldIsThreatened(square >>> 3 & 7, square & 7, square < 64);
+    }
+
+    // subtract fork for the cost of the validation alone
+    @Benchmark
+    public boolean isValidActionCold() {
+        int pair = next++ & 4095;
+        Chess fresh = positions[pair % positions.length].fork();
+        return fresh.isValidAction(pair >>> 9, pair >>> 6 & 7, pair >>> 3 & 7, pair & 7);
+    }
+
+    @Benchmark
+    public boolean fieldIsThreatenedCold() {
+        int square = next++ & 127;
+        Chess fresh = positions[square % positions.length].fork();
+        return fresh.fieldIsThreatened(square >>> 3 & 7, square & 7, square < 64);
+    }
+
+    // a move needs a game of its own to play into; subtract fork for the cost of the move alone
+    @Benchmark
+    public Chess fork() {
+        return chess.fork();
+    }
+
+    // the first move after a fork also copies the shared history, as any game forked for analysis does
+    @Benchmark
+    public Chess move() {
+        Chess copy = chess.fork();
+        copy.move(legalMoves[next++ % legalMoveCount], 0);
+        return copy;
+    }
+
+    @Benchmark
+    public String generateAlgebraicNotation() {
+        return chess.generateAlgebraicNotation(legalMoves[next++ % legalMoveCount]);
+    }
+
+    @Benchmark
+    public String getBoardString() {
+        return chess.getBoardString();
+    }
+
+    @Benchmark
+    public String getMovesString() {
+        return chess.getMovesString();
+    }
+}
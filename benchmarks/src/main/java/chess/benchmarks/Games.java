@@ -0,0 +1,66 @@
+package chess.benchmarks;
+
+import java.util.Random;
+
+import chess.Chess;
+import chess.GameState;
+import chess.Move;
+import chess.Perft;
+
+// the fixed games every benchmark runs against, rebuilt identically on each run
+final class Games {
+    static final String OPENING = "OPENING";
+    static final String MIDDLEGAME = "MIDDLEGAME";
+    static final String LONG_ENDGAME = "LONG_ENDGAME";
+
+    private static final String[] OPENING_MOVES = { "e4", "e5", "Nf3", "Nc6", "Bb5", "a6", "Ba4", "Nf6" };
+    private static final int LONG_GAME_PLIES = 240;
+
+    private Games() {
+    }
+
+    static Chess build(String name) {
+        switch (name) {
+            case OPENING:
+                return opening();
+            case MIDDLEGAME:
+                return Chess.fromFen(Perft.KIWIPETE_FEN, 3600);
+            case LONG_ENDGAME:
+                return longGame();
+        }
+        throw new IllegalArgumentException("Unknown game: " + name);
+    }
+
+    private static Chess opening() {
+        Chess game = new Chess(3600);
+        for (String san : OPENING_MOVES) {
+            game.move(game.parseMove(san), 0);
+        }
+        return game;
+    }
+
+    // a seeded random game kept going past LONG_GAME_PLIES, by then mostly kings and a few pieces
+    private static Chess longGame() {
+        Random random = new Random(20240611L);
+        Chess game = new Chess(3600);
+        int[] moves = new int[Move.MAX_MOVES];
+        while (game.getMoveCount() < LONG_GAME_PLIES) {
+            int count = game.generateLegalMoves(moves);
+            int start = random.nextInt(count);
+            int chosen = Move.NONE;
+            for (int i = 0; i < count && chosen == Move.NONE; i++) {
+                int move = moves[(start + i) % count];
+                Chess next = game.fork();
+                next.move(move, 0);
+                if (next.getGameState() == GameState.ONGOING) {
+                    chosen = move;
+                }
+            }
+            if (chosen == Move.NONE) {
+                throw new IllegalStateException("Long game ended at ply " + game.getMoveCount());
+            }
+            game.move(chosen, 0);
+        }
+        return game;
+    }
+}
@@ -0,0 +1,63 @@
+package chess.endgame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*
+ * File layout:
+ *   int    magic "CBB1"
+ *   byte   material name length, followed by the ASCII name, e.g. KRKP
+ *   bytes  two bits per position index, four positions per byte starting at the low bits:
+ *          0 draw, 1 win, 2 loss, 3 illegal, all for the side to move
+ */
+public class Bitbase {
+    static final int MAGIC = 0x43424231;
+    static final int DRAW = 0;
+    static final int WIN = 1;
+    static final int LOSS = 2;
+    static final int ILLEGAL = 3;
+
+    private final Material material;
+    private final ByteBuffer data;
+    private final int dataStart;
+
+    private Bitbase(Material material, ByteBuffer data, int dataStart) {
+        this.material = material;
+        this.data = data;
+        this.dataStart = dataStart;
+    }
+
+    public static Bitbase open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.remaining() < 5 || data.getInt(0) != MAGIC) {
+                throw new IOException("Not a bitbase: " + file);
+            }
+            int nameLength = data.get(4) & 0xFF;
+            byte[] name = new byte[nameLength];
+            data.get(5, name);
+            Material material = Material.parse(new String(name, StandardCharsets.US_ASCII));
+            if (data.capacity() - 5 - nameLength < material.size() / 4) {
+                throw new IOException("Truncated bitbase: " + file);
+            }
+            return new Bitbase(material, data, 5 + nameLength);
+        }
+    }
+
+    public String getName() {
+        return material.name;
+    }
+
+    Material getMaterial() {
+        return material;
+    }
+
+    int code(int index) {
+        return data.get(dataStart + (index >>> 2)) >>> ((index & 3) * 2) & 3;
+    }
+}
@@ -0,0 +1,430 @@
+package chess.endgame;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import chess.Bitboards;
+import chess.Move;
+import chess.Piece;
+import chess.Position;
+
+/*
+ * Retrograde solver for endgames of up to four pieces. Every placement is first evaluated forward with
+ * the library's own move generator: mates, stalemates, draws by insufficient material and moves that
+ * leave the table through a capture or promotion (looked up in the smaller tables, which are solved
+ * first) settle some positions outright, the rest keep a count of their moves that stay in the table.
+ * Solved wins and losses are then walked backwards through un-moves: a predecessor of a loss is a win,
+ * and a position whose last open move leads to a win for the opponent is a loss, or a draw when one
+ * of its moves already reached a draw. Whatever is still open at the end is a draw.
+ * Double pawn pushes that allow en passant are judged together with the en passant replies.
+ */
+public class BitbaseGenerator {
+    private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int CHUNK = 1 << 15;
+
+    // state of an open position: moves still in the table above bit 8, bit 3 set once a draw is reachable
+    private static final int SOLVED = 4;
+    private static final int HAS_DRAW = 8;
+    private static final int NO_EN_PASSANT = -1;
+
+    private final ForkJoinPool pool;
+    private final Map<Long, Table> tables = new HashMap<>();
+
+    public BitbaseGenerator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BitbaseGenerator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    // writes the table for the material and every smaller table it depends on as NAME.bb
+    public void generate(String material, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        solve(Material.parse(material));
+        for (Table table : tables.values()) {
+            write(table, directory.resolve(table.material.name + ".bb"));
+        }
+    }
+
+    private Table solve(Material material) {
+        Table table = tables.get(key(material.whiteKey, material.blackKey));
+        if (table != null) {
+            return table;
+        }
+        if (material.pieces.length > 4) {
+            throw new IllegalArgumentException("Bitbases are limited to four pieces: " + material.name);
+        }
+        for (Material child : children(material)) {
+            solve(child);
+        }
+
+        int[] states = new int[material.size()];
+        List<ForkJoinTask<int[]>> tasks = new ArrayList<>();
+        for (int start = 0; start < states.length; start += CHUNK) {
+            int from = start;
+            int to = Math.min(states.length, start + CHUNK);
+            tasks.add(pool.submit(() -> new Worker(material, states).initialise(from, to)));
+        }
+        int[] frontier = collect(tasks);
+        while (frontier.length > 0) {
+            tasks.clear();
+            int[] current = frontier;
+            for (int start = 0; start < current.length; start += CHUNK / 16) {
+                int from = start;
+                int to = Math.min(current.length, start + CHUNK / 16);
+                tasks.add(pool.submit(() -> new Worker(material, states).propagate(current, from, to)));
+            }
+            frontier = collect(tasks);
+        }
+
+        byte[] codes = new byte[states.length];
+        for (int i = 0; i < states.length; i++) {
+            codes[i] = (byte) ((states[i] & SOLVED) != 0 ? states[i] & 3 : Bitbase.DRAW);
+        }
+        table = new Table(material, codes);
+        tables.put(key(material.whiteKey, material.blackKey), table);
+        return table;
+    }
+
+    // every smaller material a capture or promotion can lead to that is not a dead draw
+    private static List<Material> children(Material material) {
+        List<Material> children = new ArrayList<>();
+        int[] keys = { material.whiteKey, material.blackKey };
+        for (int side = 0; side < 2; side++) {
+            for (int type = Piece.PAWN; type <= Piece.QUEEN; type++) {
+                if (Material.count(keys[side], type) == 0) {
+                    continue;
+                }
+                int[] reduced = keys.clone();
+                reduced[side] = Material.withCount(keys[side], type, -1);
+                addChild(children, reduced[0], reduced[1]);
+                if (type == Piece.PAWN) {
+                    for (int promotion = Piece.KNIGHT; promotion <= Piece.QUEEN; promotion++) {
+                        int[] promoted = reduced.clone();
+                        promoted[side] = Material.withCount(reduced[side], promotion, 1);
+                        addChild(children, promoted[0], promoted[1]);
+                        // promoting with a capture
+                        for (int captured = Piece.PAWN; captured <= Piece.QUEEN; captured++) {
+                            if (Material.count(promoted[side ^ 1], captured) > 0) {
+                                int[] both = promoted.clone();
+                                both[side ^ 1] = Material.withCount(promoted[side ^ 1], captured, -1);
+                                addChild(children, both[0], both[1]);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return children;
+    }
+
+    private static void addChild(List<Material> children, int whiteKey, int blackKey) {
+        if (!Material.isTrivialDraw(whiteKey, blackKey)) {
+            children.add(Material.canonical(whiteKey, blackKey));
+        }
+    }
+
+    private static int[] collect(List<ForkJoinTask<int[]>> tasks) {
+        int[][] parts = new int[tasks.size()][];
+        int total = 0;
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = tasks.get(i).join();
+            total += parts[i].length;
+        }
+        int[] all = new int[total];
+        int offset = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, all, offset, part.length);
+            offset += part.length;
+        }
+        return all;
+    }
+
+    private static void write(Table table, Path file) throws IOException {
+        byte[] name = table.material.name.getBytes(StandardCharsets.US_ASCII);
+        byte[] packed = new byte[(table.codes.length + 3) / 4];
+        for (int i = 0; i < table.codes.length; i++) {
+            packed[i >>> 2] |= table.codes[i] << ((i & 3) * 2);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file),
+                1 << 16))) {
+            out.writeInt(Bitbase.MAGIC);
+            out.writeByte(name.length);
+            out.write(name);
+            out.write(packed);
+        }
+    }
+
+    private static long key(int whiteKey, int blackKey) {
+        return (long) whiteKey << 32 | blackKey;
+    }
+
+    private static final class Table {
+        final Material material;
+        final byte[] codes;
+
+        Table(Material material, byte[] codes) {
+            this.material = material;
+            this.codes = codes;
+        }
+    }
+
+    // scratch for one thread working through a range of positions
+    private final class Worker {
+        private final Material material;
+        private final int[] states;
+        private final int count;
+        private final Position position = new Position();
+        private final int[] squares;
+        private final int[] moves = new int[Move.MAX_MOVES];
+        private final int[] replies = new int[Move.MAX_MOVES];
+        private int[] solved = new int[64];
+        private int solvedCount;
+
+        Worker(Material material, int[] states) {
+            this.material = material;
+            this.states = states;
+            this.count = material.pieces.length;
+            this.squares = new int[count];
+        }
+
+        int[] initialise(int from, int to) {
+            for (int index = from; index < to; index++) {
+                int state = evaluate(index);
+                states[index] = state;
+                if (state == (SOLVED | Bitbase.WIN) || state == (SOLVED | Bitbase.LOSS)) {
+                    addSolved(index);
+                }
+            }
+            return Arrays.copyOf(solved, solvedCount);
+        }
+
+        int[] propagate(int[] frontier, int from, int to) {
+            for (int i = from; i < to; i++) {
+                int index = frontier[i];
+                int result = states[index] & 3;
+                int sideToMove = decode(index);
+                position.reset(sideToMove, material.pieces, squares, count);
+                int mover = sideToMove ^ 1;
+                long occupied = position.occupancy();
+                for (int slot = 0; slot < count; slot++) {
+                    int piece = material.pieces[slot];
+                    if (Piece.colour(piece) != mover) {
+                        continue;
+                    }
+                    int target = squares[slot];
+                    int shift = 6 * (count - 1 - slot);
+                    int base = (index ^ 1 << 6 * count) & ~(63 << shift);
+                    if (Piece.type(piece) != Piece.PAWN) {
+                        long origins = attacks(piece, target, occupied) & ~occupied;
+                        while (origins != 0) {
+                            update(base | Long.numberOfTrailingZeros(origins) << shift, result, false);
+                            origins &= origins - 1;
+                        }
+                        continue;
+                    }
+                    int back = mover == Piece.WHITE ? -8 : 8;
+                    int origin = target + back;
+                    if ((occupied & Bitboards.bit(origin)) != 0 || Bitboards.row(origin) == 0
+                            || Bitboards.row(origin) == 7) {
+                        continue;
+                    }
+                    update(base | origin << shift, result, false);
+                    int start = origin + back;
+                    if (Bitboards.row(target) == (mover == Piece.WHITE ? 3 : 4)
+                            && (occupied & Bitboards.bit(start)) == 0) {
+                        int predecessor = base | start << shift;
+                        if ((states[predecessor] & SOLVED) == 0) {
+                            decode(predecessor);
+                            position.reset(mover, material.pieces, squares, count);
+                            int reply = enPassantReply(Move.encode(start, target, Move.DOUBLE_PAWN_PUSH));
+                            if (reply != Bitbase.WIN) {
+                                update(predecessor, result, reply == Bitbase.DRAW);
+                            }
+                            decode(index);
+                        }
+                    }
+                }
+            }
+            return Arrays.copyOf(solved, solvedCount);
+        }
+
+        // the opponent's result in a solved child moves this position's open count; capped moves never win
+        private void update(int index, int childResult, boolean capped) {
+            while (true) {
+                int state = (int) STATES.getVolatile(states, index);
+                if ((state & SOLVED) != 0) {
+                    return;
+                }
+                int next;
+                if (childResult == Bitbase.LOSS && !capped) {
+                    next = SOLVED | Bitbase.WIN;
+                } else {
+                    int hasDraw = state & HAS_DRAW | (childResult == Bitbase.LOSS ? HAS_DRAW : 0);
+                    int open = (state >>> 8) - 1;
+                    if (open == 0) {
+                        next = SOLVED | (hasDraw != 0 ? Bitbase.DRAW : Bitbase.LOSS);
+                    } else {
+                        next = open << 8 | hasDraw;
+                    }
+                }
+                if (STATES.compareAndSet(states, index, state, next)) {
+                    if (next == (SOLVED | Bitbase.WIN) || next == (SOLVED | Bitbase.LOSS)) {
+                        addSolved(index);
+                    }
+                    return;
+                }
+            }
+        }
+
+        private int evaluate(int index) {
+            int sideToMove = decode(index);
+            long occupied = 0;
+            for (int slot = 0; slot < count; slot++) {
+                long bit = Bitboards.bit(squares[slot]);
+                int row = Bitboards.row(squares[slot]);
+                boolean pawnOnBackRank = Piece.type(material.pieces[slot]) == Piece.PAWN && (row == 0 || row == 7);
+                if ((occupied & bit) != 0 || pawnOnBackRank) {
+                    return SOLVED | Bitbase.ILLEGAL;
+                }
+                occupied |= bit;
+            }
+            position.reset(sideToMove, material.pieces, squares, count);
+            if (position.isAttacked(position.kingSquare(sideToMove ^ 1), sideToMove)) {
+                return SOLVED | Bitbase.ILLEGAL;
+            }
+            if (position.hasInsufficientMaterial()) {
+                return SOLVED | Bitbase.DRAW;
+            }
+            int moveCount = position.generateLegalMoves(moves);
+            if (moveCount == 0) {
+                return SOLVED | (position.isInCheck() ? Bitbase.LOSS : Bitbase.DRAW);
+            }
+            int open = 0;
+            boolean hasDraw = false;
+            for (int i = 0; i < moveCount; i++) {
+                int move = moves[i];
+                if (Move.isCapture(move) || Move.isPromotion(move)) {
+                    int result = childResult(move);
+                    if (result == Bitbase.LOSS) {
+                        return SOLVED | Bitbase.WIN;
+                    }
+                    hasDraw |= result == Bitbase.DRAW;
+                } else if (Move.flags(move) == Move.DOUBLE_PAWN_PUSH) {
+                    int reply = enPassantReply(move);
+                    if (reply != Bitbase.WIN) {
+                        open++;
+                    }
+                } else {
+                    open++;
+                }
+            }
+            if (open == 0) {
+                return SOLVED | (hasDraw ? Bitbase.DRAW : Bitbase.LOSS);
+            }
+            return open << 8 | (hasDraw ? HAS_DRAW : 0);
+        }
+
+        // the opponent's best en passant capture after a double push, or NO_EN_PASSANT when there is none
+        private int enPassantReply(int move) {
+            position.makeMove(move);
+            int best = NO_EN_PASSANT;
+            if (position.getEnPassantSquare() >= 0) {
+                int replyCount = position.generateLegalMoves(replies);
+                for (int i = 0; i < replyCount; i++) {
+                    if (Move.flags(replies[i]) == Move.EN_PASSANT) {
+                        position.makeMove(replies[i]);
+                        int result = negate(probe());
+                        position.unmakeMove();
+                        if (best == NO_EN_PASSANT || rank(result) > rank(best)) {
+                            best = result;
+                        }
+                    }
+                }
+            }
+            position.unmakeMove();
+            return best;
+        }
+
+        private int childResult(int move) {
+            position.makeMove(move);
+            int result = probe();
+            position.unmakeMove();
+            return result;
+        }
+
+        // result for the side to move in a position of a smaller, already solved material
+        private int probe() {
+            if (position.hasInsufficientMaterial()) {
+                return Bitbase.DRAW;
+            }
+            int whiteKey = Material.sideKey(position::pieces, Piece.WHITE);
+            int blackKey = Material.sideKey(position::pieces, Piece.BLACK);
+            boolean flip = !Material.isCanonical(whiteKey, blackKey);
+            Table table = tables.get(flip ? key(blackKey, whiteKey) : key(whiteKey, blackKey));
+            return table.codes[table.material.index(position::pieces, position.getSideToMove(), flip)];
+        }
+
+        private int decode(int index) {
+            for (int slot = count - 1; slot >= 0; slot--) {
+                squares[slot] = index & 63;
+                index >>>= 6;
+            }
+            return index;
+        }
+
+        private void addSolved(int index) {
+            if (solvedCount == solved.length) {
+                solved = Arrays.copyOf(solved, solved.length * 2);
+            }
+            solved[solvedCount++] = index;
+        }
+    }
+
+    private static long attacks(int piece, int square, long occupied) {
+        switch (Piece.type(piece)) {
+            case Piece.KNIGHT:
+                return Bitboards.knightAttacks(square);
+            case Piece.BISHOP:
+                return Bitboards.bishopAttacks(square, occupied);
+            case Piece.ROOK:
+                return Bitboards.rookAttacks(square, occupied);
+            case Piece.QUEEN:
+                return Bitboards.queenAttacks(square, occupied);
+            default:
+                return Bitboards.kingAttacks(square);
+        }
+    }
+
+    private static int negate(int result) {
+        return result == Bitbase.WIN ? Bitbase.LOSS : result == Bitbase.LOSS ? Bitbase.WIN : result;
+    }
+
+    private static int rank(int result) {
+        return result == Bitbase.WIN ? 2 : result == Bitbase.DRAW ? 1 : 0;
+    }
+
+    // BitbaseGenerator <directory> <material>..., e.g. BitbaseGenerator bitbases KPK KRKP
+    public static void main(String[] args) throws IOException {
+        BitbaseGenerator generator = new BitbaseGenerator();
+        for (int i = 1; i < args.length; i++) {
+            long start = System.nanoTime();
+            generator.generate(args[i], Path.of(args[0]));
+            System.out.println(args[i] + ": " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package chess.endgame;
+
+// from the point of view of the side to move
+public enum BitbaseResult {
+    WIN,
+    DRAW,
+    LOSS,
+    UNKNOWN
+}
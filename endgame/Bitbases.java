@@ -0,0 +1,78 @@
+package chess.endgame;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntToLongFunction;
+
+import chess.Chess;
+import chess.Piece;
+import chess.Position;
+
+// every bitbase in a directory, probed by the material on the board
+public class Bitbases {
+    private final Map<Long, Bitbase> tables = new HashMap<>();
+
+    public static Bitbases open(Path directory) throws IOException {
+        Bitbases bitbases = new Bitbases();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.bb")) {
+            for (Path file : files) {
+                bitbases.add(Bitbase.open(file));
+            }
+        }
+        return bitbases;
+    }
+
+    public void add(Bitbase bitbase) {
+        Material material = bitbase.getMaterial();
+        tables.put(key(material.whiteKey, material.blackKey), bitbase);
+    }
+
+    public int size() {
+        return tables.size();
+    }
+
+    public BitbaseResult probe(Chess chess) {
+        if (chess.getCastlingRights() != 0 || chess.getEnPassantSquare() >= 0) {
+            return BitbaseResult.UNKNOWN;
+        }
+        return probe(chess::pieces, chess.isWhiteTurn() ? Piece.WHITE : Piece.BLACK);
+    }
+
+    public BitbaseResult probe(Position position) {
+        if (position.getCastlingRights() != 0 || position.getEnPassantSquare() >= 0) {
+            return BitbaseResult.UNKNOWN;
+        }
+        return probe(position::pieces, position.getSideToMove());
+    }
+
+    // tables cover positions without castling rights or an en passant square
+    private BitbaseResult probe(IntToLongFunction pieces, int sideToMove) {
+        int whiteKey = Material.sideKey(pieces, Piece.WHITE);
+        int blackKey = Material.sideKey(pieces, Piece.BLACK);
+        if (Material.isTrivialDraw(whiteKey, blackKey)) {
+            return BitbaseResult.DRAW;
+        }
+        boolean flip = !Material.isCanonical(whiteKey, blackKey);
+        Bitbase table = tables.get(flip ? key(blackKey, whiteKey) : key(whiteKey, blackKey));
+        if (table == null) {
+            return BitbaseResult.UNKNOWN;
+        }
+        switch (table.code(table.getMaterial().index(pieces, sideToMove, flip))) {
+            case Bitbase.WIN:
+                return BitbaseResult.WIN;
+            case Bitbase.LOSS:
+                return BitbaseResult.LOSS;
+            case Bitbase.DRAW:
+                return BitbaseResult.DRAW;
+        }
+        return BitbaseResult.UNKNOWN;
+    }
+
+    private static long key(int whiteKey, int blackKey) {
+        return (long) whiteKey << 32 | blackKey;
+    }
+}
@@ -0,0 +1,149 @@
+package chess.endgame;
+
+import java.util.function.IntToLongFunction;
+
+import chess.Piece;
+
+/*
+ * A set of pieces and the index of every placement of them: the side to move above six bits per
+ * piece, pieces ordered white then black, each side king first and then queens down to pawns.
+ * Material keys hold four bits per piece type from queen to pawn for each side.
+ */
+final class Material {
+    private static final int[] TYPES = { Piece.QUEEN, Piece.ROOK, Piece.BISHOP, Piece.KNIGHT, Piece.PAWN };
+    private static final int[] VALUES = { 9, 5, 3, 3, 1 };
+    private static final String LETTERS = "QRBNP";
+
+    final int whiteKey;
+    final int blackKey;
+    final int[] pieces;
+    final String name;
+
+    private Material(int whiteKey, int blackKey) {
+        this.whiteKey = whiteKey;
+        this.blackKey = blackKey;
+        this.pieces = new int[2 + pieceCount(whiteKey) + pieceCount(blackKey)];
+        int count = addPieces(Piece.WHITE, whiteKey, 0);
+        addPieces(Piece.BLACK, blackKey, count);
+        this.name = sideName(whiteKey) + sideName(blackKey);
+    }
+
+    // the orientation tables are generated in: stronger side as white
+    static Material canonical(int whiteKey, int blackKey) {
+        return isCanonical(whiteKey, blackKey) ? new Material(whiteKey, blackKey) : new Material(blackKey, whiteKey);
+    }
+
+    static boolean isCanonical(int whiteKey, int blackKey) {
+        int difference = value(whiteKey) - value(blackKey);
+        return difference > 0 || difference == 0 && whiteKey >= blackKey;
+    }
+
+    static Material parse(String name) {
+        int second = name.indexOf('K', 1);
+        if (name.isEmpty() || name.charAt(0) != 'K' || second < 0 || name.indexOf('K', second + 1) >= 0) {
+            throw new IllegalArgumentException("Expected material like KRKP: " + name);
+        }
+        return canonical(parseSide(name, 1, second), parseSide(name, second + 1, name.length()));
+    }
+
+    static int sideKey(IntToLongFunction pieces, int colour) {
+        int key = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            key |= Math.min(15, Long.bitCount(pieces.applyAsLong(Piece.of(colour, TYPES[i])))) << (4 * i);
+        }
+        return key;
+    }
+
+    // only kings, or kings and a single minor piece, can never be won
+    static boolean isTrivialDraw(int whiteKey, int blackKey) {
+        int minors = 0xFF << 8;
+        int total = pieceCount(whiteKey) + pieceCount(blackKey);
+        return total == 0 || total == 1 && ((whiteKey | blackKey) & ~minors) == 0;
+    }
+
+    int size() {
+        return 2 << (6 * pieces.length);
+    }
+
+    // flip mirrors the ranks and swaps the colours, for positions where black holds this material's white side
+    int index(IntToLongFunction boards, int sideToMove, boolean flip) {
+        int index = flip ? sideToMove ^ 1 : sideToMove;
+        long bits = 0;
+        for (int i = 0; i < pieces.length; i++) {
+            if (i == 0 || pieces[i] != pieces[i - 1]) {
+                int piece = pieces[i];
+                bits = boards.applyAsLong(flip ? Piece.of(Piece.colour(piece) ^ 1, Piece.type(piece)) : piece);
+            }
+            int square = Long.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            index = index << 6 | (flip ? square ^ 56 : square);
+        }
+        return index;
+    }
+
+    static int pieceCount(int sideKey) {
+        int count = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            count += sideKey >>> (4 * i) & 15;
+        }
+        return count;
+    }
+
+    static int count(int sideKey, int type) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i] == type) {
+                return sideKey >>> (4 * i) & 15;
+            }
+        }
+        return 0;
+    }
+
+    static int withCount(int sideKey, int type, int delta) {
+        for (int i = 0; i < TYPES.length; i++) {
+            if (TYPES[i] == type) {
+                return sideKey + (delta << (4 * i));
+            }
+        }
+        return sideKey;
+    }
+
+    private int addPieces(int colour, int sideKey, int count) {
+        pieces[count++] = Piece.of(colour, Piece.KING);
+        for (int i = 0; i < TYPES.length; i++) {
+            for (int n = sideKey >>> (4 * i) & 15; n > 0; n--) {
+                pieces[count++] = Piece.of(colour, TYPES[i]);
+            }
+        }
+        return count;
+    }
+
+    private static int parseSide(String name, int start, int end) {
+        int key = 0;
+        for (int i = start; i < end; i++) {
+            int type = LETTERS.indexOf(name.charAt(i));
+            if (type < 0) {
+                throw new IllegalArgumentException("Unknown piece in " + name);
+            }
+            key += 1 << (4 * type);
+        }
+        return key;
+    }
+
+    private static String sideName(int sideKey) {
+        StringBuilder name = new StringBuilder("K");
+        for (int i = 0; i < TYPES.length; i++) {
+            for (int n = sideKey >>> (4 * i) & 15; n > 0; n--) {
+                name.append(LETTERS.charAt(i));
+            }
+        }
+        return name.toString();
+    }
+
+    private static int value(int sideKey) {
+        int value = 0;
+        for (int i = 0; i < TYPES.length; i++) {
+            value += (sideKey >>> (4 * i) & 15) * VALUES[i];
+        }
+        return value;
+    }
+}
@@ -0,0 +1,19 @@
+package chess.engine;
+
+import chess.Position;
+
+// a search calls makeMove before every Position.makeMove and unmakeMove after every Position.unmakeMove
+@FunctionalInterface
+public interface Evaluation {
+    default void reset(Position position) {
+    }
+
+    default void makeMove(Position position, int move) {
+    }
+
+    default void unmakeMove() {
+    }
+
+    // centipawns from the side to move's point of view
+    int evaluate(Position position);
+}
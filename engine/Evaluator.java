@@ -0,0 +1,106 @@
+package chess.engine;
+
+import chess.Bitboards;
+import chess.Piece;
+import chess.Position;
+
+// material and piece-square tables, tables are laid out from white's side with rank 8 on the first line
+public final class Evaluator {
+    public static final int[] PIECE_VALUES = { 100, 320, 330, 500, 900, 20000 };
+
+    private static final int[][] TABLES = {
+        {
+             0,  0,  0,  0,  0,  0,  0,  0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+             5,  5, 10, 25, 25, 10,  5,  5,
+             0,  0,  0, 20, 20,  0,  0,  0,
+             5, -5,-10,  0,  0,-10, -5,  5,
+             5, 10, 10,-20,-20, 10, 10,  5,
+             0,  0,  0,  0,  0,  0,  0,  0,
+        }, {
+            -50,-40,-30,-30,-30,-30,-40,-50,
+            -40,-20,  0,  0,  0,  0,-20,-40,
+            -30,  0, 10, 15, 15, 10,  0,-30,
+            -30,  5, 15, 20, 20, 15,  5,-30,
+            -30,  0, 15, 20, 20, 15,  0,-30,
+            -30,  5, 10, 15, 15, 10,  5,-30,
+            -40,-20,  0,  5,  5,  0,-20,-40,
+            -50,-40,-30,-30,-30,-30,-40,-50,
+        }, {
+            -20,-10,-10,-10,-10,-10,-10,-20,
+            -10,  0,  0,  0,  0,  0,  0,-10,
+            -10,  0,  5, 10, 10,  5,  0,-10,
+            -10,  5,  5, 10, 10,  5,  5,-10,
+            -10,  0, 10, 10, 10, 10,  0,-10,
+            -10, 10, 10, 10, 10, 10, 10,-10,
+            -10,  5,  0,  0,  0,  0,  5,-10,
+            -20,-10,-10,-10,-10,-10,-10,-20,
+        }, {
+             0,  0,  0,  0,  0,  0,  0,  0,
+             5, 10, 10, 10, 10, 10, 10,  5,
+            -5,  0,  0,  0,  0,  0,  0, -5,
+            -5,  0,  0,  0,  0,  0,  0, -5,
+            -5,  0,  0,  0,  0,  0,  0, -5,
+            -5,  0,  0,  0,  0,  0,  0, -5,
+            -5,  0,  0,  0,  0,  0,  0, -5,
+             0,  0,  0,  5,  5,  0,  0,  0,
+        }, {
+            -20,-10,-10, -5, -5,-10,-10,-20,
+            -10,  0,  0,  0,  0,  0,  0,-10,
+            -10,  0,  5,  5,  5,  5,  0,-10,
+             -5,  0,  5,  5,  5,  5,  0, -5,
+              0,  0,  5,  5,  5,  5,  0, -5,
+            -10,  5,  5,  5,  5,  5,  0,-10,
+            -10,  0,  5,  0,  0,  0,  0,-10,
+            -20,-10,-10, -5, -5,-10,-10,-20,
+        }, {
+            -30,-40,-40,-50,-50,-40,-40,-30,
+            -30,-40,-40,-50,-50,-40,-40,-30,
+            -30,-40,-40,-50,-50,-40,-40,-30,
+            -30,-40,-40,-50,-50,-40,-40,-30,
+            -20,-30,-30,-40,-40,-30,-30,-20,
+            -10,-20,-20,-20,-20,-20,-20,-10,
+             20, 20,  0,  0,  0,  0, 20, 20,
+             20, 30, 10,  0,  0, 10, 30, 20,
+        },
+    };
+
+    private static final int[] KING_ENDGAME = {
+        -50,-40,-30,-20,-20,-30,-40,-50,
+        -30,-20,-10,  0,  0,-10,-20,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 20, 30, 30, 20,-10,-30,
+        -30,-30,  0,  0,  0,  0,-30,-30,
+        -50,-30,-30,-30,-30,-30,-30,-50,
+    };
+
+    private Evaluator() {
+    }
+
+    // score in centipawns from the side to move's point of view
+    public static int evaluate(Position position) {
+        boolean endgame = position.pieces(Piece.of(Piece.WHITE, Piece.QUEEN)) == 0
+                && position.pieces(Piece.of(Piece.BLACK, Piece.QUEEN)) == 0;
+        int score = 0;
+        for (int piece = 0; piece < 12; piece++) {
+            int type = Piece.type(piece);
+            int[] table = endgame && type == Piece.KING ? KING_ENDGAME : TABLES[type];
+            int sign = Piece.isWhite(piece) ? 1 : -1;
+            long bits = position.pieces(piece);
+            while (bits != 0) {
+                int square = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                score += sign * (PIECE_VALUES[type] + table[tableIndex(piece, square)]);
+            }
+        }
+        return position.isWhiteToMove() ? score : -score;
+    }
+
+    static int tableIndex(int piece, int square) {
+        int row = Bitboards.row(square);
+        return (Piece.isWhite(piece) ? 7 - row : row) * 8 + Bitboards.column(square);
+    }
+}
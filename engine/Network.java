@@ -0,0 +1,168 @@
+package chess.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import chess.Piece;
+
+/*
+ * Quantised weights of a (768 -> hidden) x 2 -> 1 network: one accumulator per perspective over
+ * piece-square features, clipped ReLU, and one output neuron over both accumulators with the side
+ * to move's first. File layout, big-endian:
+ *   int    magic "CNN1"
+ *   int    hidden size
+ *   short  feature weights, 768 rows of hidden values, row = (relative colour * 6 + type) * 64 + square
+ *   short  feature biases, hidden values
+ *   short  output weights, 2 * hidden values
+ *   int    output bias
+ * Squares are seen from the perspective's side (mirrored for black) and colour 0 is the perspective's
+ * own. Activations are clipped to [0, QA]; output weights are quantised by QB and trainers keep them
+ * small enough that the 32-bit dot products cannot overflow. The dot product is then on the QA * QB
+ * scale, the output bias is stored on that scale too, and SCALE turns the sum into centipawns.
+ */
+public final class Network {
+    public static final int FEATURES = 768;
+    static final int MAGIC = 0x434E4E31;
+    static final int QA = 255;
+    static final int QB = 64;
+    static final int SCALE = 400;
+    // jdk.incubator.vector is only resolved when the JVM is started with --add-modules jdk.incubator.vector;
+    // without it VectorKernels is never loaded and the plain loops below run, which C2 vectorises less well
+    static final boolean VECTORIZED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    final int hidden;
+    // one array per feature rather than one flat array: C2 only vectorises the accumulator updates when
+    // both arrays are walked with the same index
+    final short[][] featureWeights;
+    final short[] featureBiases;
+    final short[] outputWeights;
+    final int outputBias;
+
+    public Network(int hidden, short[] featureWeights, short[] featureBiases, short[] outputWeights,
+            int outputBias) {
+        if (featureWeights.length != FEATURES * hidden || featureBiases.length != hidden
+                || outputWeights.length != 2 * hidden) {
+            throw new IllegalArgumentException("Weight arrays do not match hidden size " + hidden);
+        }
+        this.hidden = hidden;
+        this.featureWeights = new short[FEATURES][];
+        for (int feature = 0; feature < FEATURES; feature++) {
+            this.featureWeights[feature] = Arrays.copyOfRange(featureWeights, feature * hidden, (feature + 1) * hidden);
+        }
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    public static Network load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a network file: " + file);
+            }
+            int hidden = in.readInt();
+            if (hidden <= 0 || hidden > 1 << 14) {
+                throw new IOException("Bad hidden size " + hidden);
+            }
+            short[] featureWeights = readShorts(in, FEATURES * hidden);
+            short[] featureBiases = readShorts(in, hidden);
+            short[] outputWeights = readShorts(in, 2 * hidden);
+            return new Network(hidden, featureWeights, featureBiases, outputWeights, in.readInt());
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file),
+                1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(hidden);
+            for (short[] row : featureWeights) {
+                writeShorts(out, row);
+            }
+            writeShorts(out, featureBiases);
+            writeShorts(out, outputWeights);
+            out.writeInt(outputBias);
+        }
+    }
+
+    public int getHiddenSize() {
+        return hidden;
+    }
+
+    static int feature(int perspective, int piece, int square) {
+        int relative = Piece.colour(piece) ^ perspective;
+        return (relative * 6 + Piece.type(piece)) * 64 + (perspective == Piece.WHITE ? square : square ^ 56);
+    }
+
+    int evaluate(short[] us, short[] them) {
+        int sum;
+        if (VECTORIZED) {
+            sum = VectorKernels.dot(us, outputWeights, 0, hidden)
+                    + VectorKernels.dot(them, outputWeights, hidden, hidden);
+        } else {
+            sum = dot(us, 0) + dot(them, hidden);
+        }
+        return (int) ((sum + (long) outputBias) * SCALE / (QA * QB));
+    }
+
+    void add(short[] accumulator, int feature) {
+        if (VECTORIZED) {
+            VectorKernels.add(accumulator, featureWeights[feature], hidden);
+        } else {
+            addScalar(accumulator, feature);
+        }
+    }
+
+    void subtract(short[] accumulator, int feature) {
+        if (VECTORIZED) {
+            VectorKernels.subtract(accumulator, featureWeights[feature], hidden);
+        } else {
+            subtractScalar(accumulator, feature);
+        }
+    }
+
+    int dot(short[] accumulator, int offset) {
+        int sum = 0;
+        for (int i = 0; i < hidden; i++) {
+            sum += clip(accumulator[i]) * outputWeights[offset + i];
+        }
+        return sum;
+    }
+
+    void addScalar(short[] accumulator, int feature) {
+        short[] row = featureWeights[feature];
+        for (int i = 0; i < hidden; i++) {
+            accumulator[i] += row[i];
+        }
+    }
+
+    void subtractScalar(short[] accumulator, int feature) {
+        short[] row = featureWeights[feature];
+        for (int i = 0; i < hidden; i++) {
+            accumulator[i] -= row[i];
+        }
+    }
+
+    private static int clip(short value) {
+        return Math.min(Math.max(value, 0), QA);
+    }
+
+    private static short[] readShorts(DataInputStream in, int count) throws IOException {
+        short[] values = new short[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readShort();
+        }
+        return values;
+    }
+
+    private static void writeShorts(DataOutputStream out, short[] values) throws IOException {
+        for (short value : values) {
+            out.writeShort(value);
+        }
+    }
+}
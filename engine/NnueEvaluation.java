@@ -0,0 +1,104 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+import chess.Move;
+import chess.Piece;
+import chess.Position;
+
+/*
+ * Keeps one accumulator per perspective for every ply of the current line. Making a move copies the
+ * parent's accumulators and adds or subtracts only the feature rows of the pieces that changed, so
+ * unmaking is just stepping back a ply.
+ */
+public class NnueEvaluation implements Evaluation {
+    private final Network network;
+    private short[][] white;
+    private short[][] black;
+    private int ply;
+
+    public NnueEvaluation(Network network) {
+        this.network = network;
+        this.white = new short[Search.MAX_PLY + 1][network.hidden];
+        this.black = new short[Search.MAX_PLY + 1][network.hidden];
+    }
+
+    @Override
+    public void reset(Position position) {
+        ply = 0;
+        refresh(white[0], Piece.WHITE, position);
+        refresh(black[0], Piece.BLACK, position);
+    }
+
+    @Override
+    public void makeMove(Position position, int move) {
+        if (ply + 1 == white.length) {
+            white = grow(white);
+            black = grow(black);
+        }
+        System.arraycopy(white[ply], 0, white[ply + 1], 0, network.hidden);
+        System.arraycopy(black[ply], 0, black[ply + 1], 0, network.hidden);
+        ply++;
+
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int flags = Move.flags(move);
+        int piece = position.pieceAt(from);
+        int us = Piece.colour(piece);
+        move(piece, from, Move.isPromotion(move) ? Piece.of(us, Move.promotionType(move)) : piece, to);
+        if (flags == Move.EN_PASSANT) {
+            int square = to + (us == Piece.WHITE ? -8 : 8);
+            subtract(position.pieceAt(square), square);
+        } else if (Move.isCapture(move)) {
+            subtract(position.pieceAt(to), to);
+        } else if (flags == Move.KING_CASTLE) {
+            move(Piece.of(us, Piece.ROOK), to + 1, Piece.of(us, Piece.ROOK), to - 1);
+        } else if (flags == Move.QUEEN_CASTLE) {
+            move(Piece.of(us, Piece.ROOK), to - 2, Piece.of(us, Piece.ROOK), to + 1);
+        }
+    }
+
+    @Override
+    public void unmakeMove() {
+        ply--;
+    }
+
+    @Override
+    public int evaluate(Position position) {
+        if (position.isWhiteToMove()) {
+            return network.evaluate(white[ply], black[ply]);
+        }
+        return network.evaluate(black[ply], white[ply]);
+    }
+
+    private void move(int piece, int from, int placed, int to) {
+        network.subtract(white[ply], Network.feature(Piece.WHITE, piece, from));
+        network.subtract(black[ply], Network.feature(Piece.BLACK, piece, from));
+        network.add(white[ply], Network.feature(Piece.WHITE, placed, to));
+        network.add(black[ply], Network.feature(Piece.BLACK, placed, to));
+    }
+
+    private void subtract(int piece, int square) {
+        network.subtract(white[ply], Network.feature(Piece.WHITE, piece, square));
+        network.subtract(black[ply], Network.feature(Piece.BLACK, piece, square));
+    }
+
+    private void refresh(short[] accumulator, int perspective, Position position) {
+        System.arraycopy(network.featureBiases, 0, accumulator, 0, network.hidden);
+        for (int piece = 0; piece < 12; piece++) {
+            long bits = position.pieces(piece);
+            while (bits != 0) {
+                network.add(accumulator, Network.feature(perspective, piece, Long.numberOfTrailingZeros(bits)));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private short[][] grow(short[][] stack) {
+        short[][] grown = Arrays.copyOf(stack, stack.length * 2);
+        for (int i = stack.length; i < grown.length; i++) {
+            grown[i] = new short[network.hidden];
+        }
+        return grown;
+    }
+}
@@ -0,0 +1,122 @@
+package chess.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import chess.Chess;
+import chess.Move;
+import chess.Position;
+import chess.TimeSource;
+
+/*
+ * Lazy SMP: every thread runs the full iterative deepening on its own copy of the root and they share
+ * one transposition table, so what one thread learns prunes the others. Half the helpers start one ply
+ * deeper to spread the threads over different depths. The calling thread is the main worker; when it
+ * finishes the helpers are stopped and the deepest completed result wins.
+ */
+public class ParallelSearch {
+    private final TranspositionTable table;
+    private final ExecutorService executor;
+    private final Search[] workers;
+    private final TimeSource timeSource;
+
+    public ParallelSearch() {
+        this(Runtime.getRuntime().availableProcessors(), new TranspositionTable(64), ForkJoinPool.commonPool());
+    }
+
+    // threads - 1 helpers run on the executor, which needs that many threads free
+    public ParallelSearch(int threads, TranspositionTable table, ExecutorService executor) {
+        this(threads, table, executor, () -> Evaluator::evaluate);
+    }
+
+    // evaluations keep per-search state, so every thread gets its own
+    public ParallelSearch(int threads, TranspositionTable table, ExecutorService executor,
+            Supplier<Evaluation> evaluations) {
+        this(threads, table, executor, evaluations, TimeSource.SYSTEM);
+    }
+
+    // all threads share one deadline, so they all read the time from timeSource
+    public ParallelSearch(int threads, TranspositionTable table, ExecutorService executor,
+            Supplier<Evaluation> evaluations, TimeSource timeSource) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        this.table = table;
+        this.executor = executor;
+        this.workers = new Search[threads];
+        this.timeSource = timeSource;
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Search(table, evaluations.get(), timeSource);
+        }
+    }
+
+    public void setListener(Consumer<SearchResult> listener) {
+        workers[0].setListener(listener);
+    }
+
+    public void stop() {
+        for (Search worker : workers) {
+            worker.stop();
+        }
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    public SearchResult search(Chess chess, long maxMillis) {
+        return search(chess.copyPosition(), Search.MAX_PLY, 0, maxMillis);
+    }
+
+    // limits of 0 mean unlimited, the node limit counts the nodes of all threads together
+    public SearchResult search(Position position, int maxDepth, long maxNodes, long maxMillis) {
+        long start = timeSource.nanoTime();
+        long deadline = maxMillis > 0 ? start + maxMillis * 1_000_000 : Long.MAX_VALUE;
+        AtomicLong sharedNodes = new AtomicLong();
+        for (Search worker : workers) {
+            worker.reset();
+        }
+
+        List<Future<SearchResult>> helpers = new ArrayList<>(workers.length - 1);
+        for (int i = 1; i < workers.length; i++) {
+            Search worker = workers[i];
+            Position copy = new Position(position);
+            int firstDepth = 1 + i % 2;
+            helpers.add(executor.submit(
+                    () -> worker.search(copy, maxDepth, maxNodes, deadline, firstDepth, sharedNodes)));
+        }
+        SearchResult best = workers[0].search(position, maxDepth, maxNodes, deadline, 1, sharedNodes);
+        for (int i = 1; i < workers.length; i++) {
+            workers[i].stop();
+        }
+
+        long nodes = best.getNodes();
+        for (Future<SearchResult> helper : helpers) {
+            SearchResult result = join(helper);
+            nodes += result.getNodes();
+            if (result.getDepth() > best.getDepth() && result.getBestMove() != Move.NONE) {
+                best = result;
+            }
+        }
+        return new SearchResult(best.getBestMove(), best.getScore(), best.getDepth(), nodes,
+                timeSource.nanoTime() - start);
+    }
+
+    private static SearchResult join(Future<SearchResult> helper) {
+        try {
+            return helper.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package chess.engine;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import chess.Chess;
+import chess.Move;
+import chess.Piece;
+import chess.Position;
+import chess.TimeSource;
+
+// negamax alpha-beta with iterative deepening, quiescence and a transposition table; one instance per thread
+public class Search {
+    public static final int MATE = 30000;
+    public static final int MAX_PLY = 128;
+
+    private static final int INFINITY = 32000;
+    private static final int CHECK_INTERVAL = 2047;
+
+    private final TranspositionTable table;
+    private final Evaluation evaluation;
+    private final TimeSource timeSource;
+    private final int[][] moves = new int[MAX_PLY + 1][Move.MAX_MOVES];
+    private final int[][] scores = new int[MAX_PLY + 1][Move.MAX_MOVES];
+    private final int[][] killers = new int[MAX_PLY + 1][2];
+    private final int[][] history = new int[12][64];
+    private Consumer<SearchResult> listener;
+
+    private Position position;
+    private long nodes;
+    // node budget shared by all threads of a parallel search, null when searching alone
+    private AtomicLong sharedNodes;
+    private long maxNodes;
+    private long deadline;
+    private long startNanos;
+    private volatile boolean stopped;
+    private int rootBestMove;
+    private int rootBestScore;
+
+    public Search() {
+        this(new TranspositionTable(16));
+    }
+
+    public Search(TranspositionTable table) {
+        this(table, Evaluator::evaluate);
+    }
+
+    public Search(TranspositionTable table, Evaluation evaluation) {
+        this(table, evaluation, TimeSource.SYSTEM);
+    }
+
+    // time limits and reported times are read from timeSource
+    public Search(TranspositionTable table, Evaluation evaluation, TimeSource timeSource) {
+        this.table = table;
+        this.evaluation = evaluation;
+        this.timeSource = timeSource;
+    }
+
+    // called after every completed iteration
+    public void setListener(Consumer<SearchResult> listener) {
+        this.listener = listener;
+    }
+
+    public void stop() {
+        stopped = true;
+    }
+
+    void reset() {
+        stopped = false;
+    }
+
+    public SearchResult search(Chess chess, long maxMillis) {
+        return search(chess.copyPosition(), MAX_PLY, 0, maxMillis);
+    }
+
+    // limits of 0 mean unlimited; the position is restored before returning
+    public SearchResult search(Position position, int maxDepth, long maxNodes, long maxMillis) {
+        long start = timeSource.nanoTime();
+        stopped = false;
+        return search(position, maxDepth, maxNodes, maxMillis > 0 ? start + maxMillis * 1_000_000 : Long.MAX_VALUE,
+                1, null);
+    }
+
+    // leaves the stop flag alone, so a stop() issued before a helper thread gets going is not lost
+    SearchResult search(Position position, int maxDepth, long maxNodes, long deadline, int firstDepth,
+            AtomicLong sharedNodes) {
+        this.position = position;
+        this.maxNodes = maxNodes > 0 ? maxNodes : Long.MAX_VALUE;
+        this.startNanos = timeSource.nanoTime();
+        this.deadline = deadline;
+        this.sharedNodes = sharedNodes;
+        this.nodes = 0;
+        evaluation.reset(position);
+        for (int[] slots : killers) {
+            slots[0] = Move.NONE;
+            slots[1] = Move.NONE;
+        }
+        for (int[] counters : history) {
+            Arrays.fill(counters, 0);
+        }
+
+        SearchResult result = new SearchResult(Move.NONE, 0, 0, 0, 0);
+        for (int depth = Math.min(firstDepth, maxDepth); depth <= Math.min(maxDepth, MAX_PLY - 1); depth++) {
+            rootBestMove = Move.NONE;
+            int score = negamax(depth, -INFINITY, INFINITY, 0);
+            if (stopped) {
+                // the previous best is searched first, so a move completed in the cut-off iteration is no worse
+                if (rootBestMove != Move.NONE) {
+                    result = new SearchResult(rootBestMove, rootBestScore, depth - 1, nodes, 0);
+                }
+                break;
+            }
+            result = new SearchResult(rootBestMove, score, depth, nodes, timeSource.nanoTime() - startNanos);
+            if (listener != null) {
+                listener.accept(result);
+            }
+            if (rootBestMove == Move.NONE || Math.abs(score) >= MATE - depth) {
+                break;
+            }
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes,
+                timeSource.nanoTime() - startNanos);
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        if (ply > 0 && (position.isFiftyMoveRule() || position.repetitionCount() > 1
+                || position.hasInsufficientMaterial())) {
+            return 0;
+        }
+        boolean inCheck = position.isInCheck();
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0 || ply >= MAX_PLY) {
+            return quiesce(alpha, beta, ply);
+        }
+        if (countNode()) {
+            return 0;
+        }
+
+        long key = position.getHash();
+        long entry = table.probe(key);
+        int ttMove = Move.NONE;
+        if (entry != 0) {
+            ttMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT || bound == TranspositionTable.LOWER && score >= beta
+                        || bound == TranspositionTable.UPPER && score <= alpha) {
+                    return score;
+                }
+            }
+        }
+
+        int[] list = moves[ply];
+        int count = position.generateLegalMoves(list);
+        if (count == 0) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(list, scores[ply], count, ttMove, ply);
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(list, scores[ply], i, count);
+            evaluation.makeMove(position, move);
+            position.makeMove(move);
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                // principal variation search: prove the move is no better with a null window first
+                score = -negamax(depth - 1, -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && score < beta) {
+                    score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+            position.unmakeMove();
+            evaluation.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (ply == 0) {
+                    rootBestMove = move;
+                    rootBestScore = score;
+                }
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                    if (killers[ply][0] != move) {
+                        killers[ply][1] = killers[ply][0];
+                        killers[ply][0] = move;
+                    }
+                    history[position.pieceAt(Move.from(move))][Move.to(move)] += depth * depth;
+                }
+                break;
+            }
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.LOWER
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+        return bestScore;
+    }
+
+    private int quiesce(int alpha, int beta, int ply) {
+        if (countNode()) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return evaluation.evaluate(position);
+        }
+        boolean inCheck = position.isInCheck();
+        int[] list = moves[ply];
+        int count;
+        int bestScore;
+        if (inCheck) {
+            // every evasion has to be tried, standing pat is not an option in check
+            count = position.generateLegalMoves(list);
+            if (count == 0) {
+                return -MATE + ply;
+            }
+            bestScore = -INFINITY;
+        } else {
+            bestScore = evaluation.evaluate(position);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            if (bestScore > alpha) {
+                alpha = bestScore;
+            }
+            count = position.generateLegalCaptures(list);
+        }
+        scoreMoves(list, scores[ply], count, Move.NONE, ply);
+        for (int i = 0; i < count; i++) {
+            int move = pickNext(list, scores[ply], i, count);
+            evaluation.makeMove(position, move);
+            position.makeMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            position.unmakeMove();
+            evaluation.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return bestScore;
+    }
+
+    // order: table move, captures by most valuable victim then least valuable attacker, killers, history
+    private void scoreMoves(int[] list, int[] order, int count, int ttMove, int ply) {
+        for (int i = 0; i < count; i++) {
+            int move = list[i];
+            int mover = position.pieceAt(Move.from(move));
+            if (move == ttMove) {
+                order[i] = 1 << 30;
+            } else if (Move.isCapture(move) || Move.isPromotion(move)) {
+                int victim = position.pieceAt(Move.to(move));
+                int victimValue = victim == Piece.NONE ? Piece.PAWN : Piece.type(victim);
+                order[i] = (1 << 29) + (victimValue + Move.promotionType(move) + 1) * 16 - Piece.type(mover);
+            } else if (move == killers[ply][0]) {
+                order[i] = (1 << 28) + 1;
+            } else if (move == killers[ply][1]) {
+                order[i] = 1 << 28;
+            } else {
+                order[i] = Math.min(history[mover][Move.to(move)], (1 << 28) - 1);
+            }
+        }
+    }
+
+    private static int pickNext(int[] list, int[] order, int index, int count) {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (order[i] > order[best]) {
+                best = i;
+            }
+        }
+        int move = list[best];
+        list[best] = list[index];
+        list[index] = move;
+        int score = order[best];
+        order[best] = order[index];
+        order[index] = score;
+        return move;
+    }
+
+    private boolean countNode() {
+        nodes++;
+        if ((nodes & CHECK_INTERVAL) == 0) {
+            long total = sharedNodes == null ? nodes : sharedNodes.addAndGet(CHECK_INTERVAL + 1);
+            if (total >= maxNodes || timeSource.nanoTime() >= deadline) {
+                stopped = true;
+            }
+        }
+        return stopped;
+    }
+
+    // mate scores are stored relative to the node so they stay correct when reached at another ply
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score + ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) {
+            return score - ply;
+        }
+        if (score <= -MATE + MAX_PLY) {
+            return score + ply;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,54 @@
+package chess.engine;
+
+import chess.Move;
+
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long elapsedNanos;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long elapsedNanos) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    // centipawns for the side to move, or Search.MATE minus the distance to mate in plies
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getNodesPerSecond() {
+        return nodes * 1_000_000_000L / Math.max(1, elapsedNanos);
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + depth + " score " + score + " nodes " + nodes + " nps " + getNodesPerSecond()
+                + " bestmove " + Move.toString(bestMove);
+    }
+}
@@ -0,0 +1,70 @@
+package chess.engine;
+
+import java.util.Arrays;
+
+/*
+ * Entry data packs move (16 bits), score (16 bits, offset), depth (8 bits) and bound (2 bits).
+ * A probe returns 0 on a miss; stored entries always have a non-zero bound.
+ * Slots hold (key ^ data, data) so searches on several threads can share the table without locks:
+ * a slot torn by two concurrent stores fails verification and reads as a miss.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    private final long[] keys;
+    private final long[] data;
+
+    // 16 bytes a slot, rounded down to a power of two and capped at the largest one an array can hold
+    public TranspositionTable(int megabytes) {
+        long slots = Math.min(Math.max(1, ((long) megabytes << 20) / 16), 1L << 30);
+        int entries = Integer.highestOneBit((int) slots);
+        keys = new long[entries];
+        data = new long[entries];
+    }
+
+    public long probe(long key) {
+        int index = (int) key & (keys.length - 1);
+        long entry = data[index];
+        return (keys[index] ^ entry) == key ? entry : 0;
+    }
+
+    // a different position always replaces, the same position only with an equal or deeper result
+    public void store(long key, int move, int score, int depth, int bound) {
+        int index = (int) key & (keys.length - 1);
+        long existing = data[index];
+        if ((keys[index] ^ existing) == key && depth(existing) > depth && bound != EXACT) {
+            return;
+        }
+        long entry = (move & 0xFFFFL) | (long) (score + 32768) << 16 | (long) (depth & 0xFF) << 32
+                | (long) bound << 40;
+        keys[index] = key ^ entry;
+        data[index] = entry;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    public int size() {
+        return keys.length;
+    }
+
+    public static int move(long entry) {
+        return (int) entry & 0xFFFF;
+    }
+
+    public static int score(long entry) {
+        return (int) (entry >>> 16 & 0xFFFF) - 32768;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 32 & 0xFF);
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> 40 & 3);
+    }
+}
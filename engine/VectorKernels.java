@@ -0,0 +1,58 @@
+package chess.engine;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Network's loops on jdk.incubator.vector; only loaded once Network.VECTORIZED found the module
+final class VectorKernels {
+    private static final VectorSpecies<Short> SHORTS = ShortVector.SPECIES_PREFERRED;
+    // the same width in ints, so each half of a short vector widens into one int vector
+    private static final VectorSpecies<Integer> INTS = VectorSpecies.of(int.class, SHORTS.vectorShape());
+
+    private VectorKernels() {
+    }
+
+    static void add(short[] accumulator, short[] row, int length) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i).add(ShortVector.fromArray(SHORTS, row, i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < length; i++) {
+            accumulator[i] += row[i];
+        }
+    }
+
+    static void subtract(short[] accumulator, short[] row, int length) {
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector.fromArray(SHORTS, accumulator, i).sub(ShortVector.fromArray(SHORTS, row, i))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < length; i++) {
+            accumulator[i] -= row[i];
+        }
+    }
+
+    // sum of clip(values[i]) * weights[offset + i], wrapping like the scalar loop
+    static int dot(short[] values, short[] weights, int offset, int length) {
+        IntVector sums = IntVector.zero(INTS);
+        int i = 0;
+        for (int bound = SHORTS.loopBound(length); i < bound; i += SHORTS.length()) {
+            ShortVector clipped = ShortVector.fromArray(SHORTS, values, i).max((short) 0).min((short) Network.QA);
+            ShortVector weight = ShortVector.fromArray(SHORTS, weights, offset + i);
+            for (int part = 0; part < 2; part++) {
+                IntVector a = (IntVector) clipped.convertShape(VectorOperators.S2I, INTS, part);
+                IntVector b = (IntVector) weight.convertShape(VectorOperators.S2I, INTS, part);
+                sums = sums.add(a.mul(b));
+            }
+        }
+        int sum = sums.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += Math.min(Math.max(values[i], 0), Network.QA) * weights[offset + i];
+        }
+        return sum;
+    }
+}
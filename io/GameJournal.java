@@ -0,0 +1,427 @@
+package chess.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
+
+import chess.Chess;
+import chess.TimeControl;
+import chess.TimeSource;
+
+/*
+ * Append-only log of live games in numbered segments, journal-N.log, each a sequence of records:
+ *   int    payload length
+ *   int    CRC32C of the payload
+ *   byte   type, then the game id as a long
+ *   start: long initial, increment and delay in milliseconds, short FEN length and the ASCII FEN,
+ *          followed by a move record for every move the game already had when it was logged
+ *   move:  int ply, short encoded move, long think time in milliseconds
+ *   end:   nothing more
+ * Appends only copy into a buffer; one flusher thread writes and fsyncs whatever has gathered while the
+ * previous batch was syncing, so a burst of moves from many games shares one fsync.
+ * Once a write or fsync fails the failure listener hears about it and every later append, like those to a
+ * closed journal, returns an already failed future; appends never throw.
+ * snapshot-N.bin holds every live game as a game record and replaces all segments before N. Move records
+ * carry their ply, so replaying a move the snapshot already contains is skipped. A move that is not legal
+ * where it lands ends its game's log, the game recovers up to the move before it.
+ */
+public class GameJournal implements Closeable {
+    static final byte START = 1;
+    static final byte MOVE = 2;
+    static final byte END = 3;
+    private static final int SNAPSHOT_MAGIC = 0x434A5331;
+
+    private final Path directory;
+    private final Object lock = new Object();
+    private final CRC32C crc = new CRC32C();
+    private final Thread flusher;
+    private final Consumer<IOException> failureListener;
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private ByteBuffer flushing = ByteBuffer.allocate(1 << 16);
+    private List<CompletableFuture<Void>> waiting = new ArrayList<>();
+    private List<CompletableFuture<Void>> committing = new ArrayList<>();
+    // segments replaced by a newer one, closed by the flusher once no batch can still be writing to them
+    private final List<FileChannel> retired = new ArrayList<>();
+    private FileChannel channel;
+    private long segment;
+    private int recordStart;
+    private boolean closed;
+    private IOException failure;
+
+    private GameJournal(Path directory, long segment, Consumer<IOException> failureListener) throws IOException {
+        this.directory = directory;
+        this.failureListener = failureListener;
+        openSegment(segment);
+        flusher = new Thread(this::flushLoop, "game-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    // appends go to a fresh segment after everything already in the directory
+    public static GameJournal open(Path directory) throws IOException {
+        return open(directory, null);
+    }
+
+    // failureListener is called once, from the flusher thread, when the journal stops being durable
+    public static GameJournal open(Path directory, Consumer<IOException> failureListener) throws IOException {
+        Files.createDirectories(directory);
+        long last = 0;
+        for (long number : list(directory, "journal-", ".log").keySet()) {
+            last = Math.max(last, number);
+        }
+        for (long number : list(directory, "snapshot-", ".bin").keySet()) {
+            last = Math.max(last, number);
+        }
+        return new GameJournal(directory, last + 1, failureListener);
+    }
+
+    // game must not change while this runs, e.g. a fork taken before anyone else can move in it
+    public CompletableFuture<Void> logStart(long gameId, Chess game) {
+        byte[] fen = game.getStartFen().getBytes(StandardCharsets.US_ASCII);
+        TimeControl timeControl = game.getTimeControl();
+        synchronized (lock) {
+            if (closed || failure != null) {
+                return unavailable();
+            }
+            ByteBuffer buffer = begin(START, gameId, 26 + fen.length);
+            buffer.putLong(timeControl.getInitialMillis());
+            buffer.putLong(timeControl.getIncrementMillis());
+            buffer.putLong(timeControl.getDelayMillis());
+            buffer.putShort((short) fen.length);
+            buffer.put(fen);
+            CompletableFuture<Void> durable = commit();
+            for (int ply = 0; ply < game.getMoveCount(); ply++) {
+                appendMove(gameId, ply, game.getMove(ply), game.getMoveTime(ply));
+                durable = commit();
+            }
+            return durable;
+        }
+    }
+
+    public CompletableFuture<Void> logMove(long gameId, int ply, int move, long elapsedMillis) {
+        synchronized (lock) {
+            if (closed || failure != null) {
+                return unavailable();
+            }
+            appendMove(gameId, ply, move, elapsedMillis);
+            return commit();
+        }
+    }
+
+    public CompletableFuture<Void> logEnd(long gameId) {
+        synchronized (lock) {
+            if (closed || failure != null) {
+                return unavailable();
+            }
+            begin(END, gameId, 0);
+            return commit();
+        }
+    }
+
+    /*
+     * Starts a new segment, then asks for the live games, so every move made after the games were taken
+     * is in the new segment or later. games must return copies nobody else changes, e.g. Chess.fork().
+     */
+    public synchronized void snapshot(Supplier<Map<Long, Chess>> games) throws IOException {
+        long snapshotSegment;
+        synchronized (lock) {
+            checkOpen();
+            snapshotSegment = segment + 1;
+            retired.add(channel);
+            openSegment(snapshotSegment);
+            lock.notifyAll();
+        }
+        Map<Long, Chess> state = games.get();
+        Path temporary = directory.resolve("snapshot-" + snapshotSegment + ".tmp");
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(file),
+                    1 << 16));
+            GameRecordWriter writer = new GameRecordWriter(out);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(state.size());
+            for (Map.Entry<Long, Chess> game : state.entrySet()) {
+                out.writeLong(game.getKey());
+                writer.write(game.getValue());
+            }
+            out.flush();
+            file.force(true);
+        }
+        Files.move(temporary, directory.resolve("snapshot-" + snapshotSegment + ".bin"),
+                StandardCopyOption.ATOMIC_MOVE);
+        for (Map.Entry<Long, Path> old : list(directory, "journal-", ".log").entrySet()) {
+            if (old.getKey() < snapshotSegment) {
+                Files.delete(old.getValue());
+            }
+        }
+        for (Map.Entry<Long, Path> old : list(directory, "snapshot-", ".bin").entrySet()) {
+            if (old.getKey() < snapshotSegment) {
+                Files.delete(old.getValue());
+            }
+        }
+    }
+
+    // the live games: the newest snapshot plus every segment after it; a torn record ends its segment
+    public static Map<Long, Chess> recover(Path directory) throws IOException {
+        Map<Long, Chess> games = new LinkedHashMap<>();
+        Set<Long> truncated = new HashSet<>();
+        long first = 0;
+        TreeMap<Long, Path> snapshots = list(directory, "snapshot-", ".bin");
+        if (!snapshots.isEmpty()) {
+            first = snapshots.lastKey();
+            readSnapshot(snapshots.lastEntry().getValue(), games);
+        }
+        for (Map.Entry<Long, Path> segment : list(directory, "journal-", ".log").entrySet()) {
+            if (segment.getKey() >= first) {
+                replay(segment.getValue(), games, truncated);
+            }
+        }
+        return games;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            channel.close();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private ByteBuffer begin(byte type, long gameId, int bodyLength) {
+        int length = 9 + bodyLength;
+        if (pending.remaining() < 8 + length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + 8 + length));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        recordStart = pending.position();
+        pending.putInt(length);
+        pending.putInt(0);
+        pending.put(type);
+        pending.putLong(gameId);
+        return pending;
+    }
+
+    private void appendMove(long gameId, int ply, int move, long elapsedMillis) {
+        ByteBuffer buffer = begin(MOVE, gameId, 14);
+        buffer.putInt(ply);
+        buffer.putShort((short) move);
+        buffer.putLong(elapsedMillis);
+    }
+
+    // fills in the checksum of the record begun last and hands back its durability future
+    private CompletableFuture<Void> commit() {
+        int length = pending.getInt(recordStart);
+        crc.reset();
+        crc.update(pending.array(), recordStart + 8, length);
+        pending.putInt(recordStart + 4, (int) crc.getValue());
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        waiting.add(durable);
+        lock.notifyAll();
+        return durable;
+    }
+
+    private CompletableFuture<Void> unavailable() {
+        return CompletableFuture.failedFuture(closed ? new IllegalStateException("Journal is closed")
+                : new IllegalStateException("Journal failed", failure));
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Journal failed", failure);
+        }
+    }
+
+    private void openSegment(long number) throws IOException {
+        channel = FileChannel.open(directory.resolve("journal-" + number + ".log"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segment = number;
+    }
+
+    private void flushLoop() {
+        while (true) {
+            FileChannel target;
+            List<FileChannel> toClose;
+            synchronized (lock) {
+                while (pending.position() == 0 && retired.isEmpty() && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (pending.position() == 0 && retired.isEmpty() && closed) {
+                    return;
+                }
+                ByteBuffer swap = flushing;
+                flushing = pending;
+                pending = swap;
+                List<CompletableFuture<Void>> futures = committing;
+                committing = waiting;
+                waiting = futures;
+                target = channel;
+                toClose = new ArrayList<>(retired);
+                retired.clear();
+            }
+            flushing.flip();
+            try {
+                // records appended before a rotation may land in the new segment, replay skips their plies
+                while (flushing.hasRemaining()) {
+                    target.write(flushing);
+                }
+                if (!committing.isEmpty()) {
+                    target.force(false);
+                }
+                for (FileChannel old : toClose) {
+                    old.force(false);
+                    old.close();
+                }
+                for (CompletableFuture<Void> future : committing) {
+                    future.complete(null);
+                }
+            } catch (IOException e) {
+                boolean first;
+                synchronized (lock) {
+                    first = failure == null;
+                    failure = e;
+                }
+                for (CompletableFuture<Void> future : committing) {
+                    future.completeExceptionally(e);
+                }
+                if (first && failureListener != null) {
+                    failureListener.accept(e);
+                }
+            }
+            flushing.clear();
+            committing.clear();
+        }
+    }
+
+    private static void readSnapshot(Path file, Map<Long, Chess> games) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a journal snapshot: " + file);
+            }
+            GameRecordReader reader = new GameRecordReader(in);
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                games.put(id, reader.read());
+            }
+        }
+    }
+
+    private static void replay(Path file, Map<Long, Chess> games, Set<Long> truncated) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32C crc = new CRC32C();
+            while (buffer.remaining() >= 8) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 9 || length > buffer.remaining()) {
+                    return;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return;
+                }
+                buffer.position(buffer.position() + length);
+                try {
+                    apply(payload, games, truncated);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    throw new IOException("Bad journal record in " + file, e);
+                }
+            }
+        }
+    }
+
+    // truncated collects the games whose log ended at an illegal move, their later moves are not replayed
+    private static void apply(ByteBuffer record, Map<Long, Chess> games, Set<Long> truncated) {
+        byte type = record.get();
+        long id = record.getLong();
+        if (type == START) {
+            long initial = record.getLong();
+            long increment = record.getLong();
+            long delay = record.getLong();
+            byte[] fen = new byte[record.getShort() & 0xFFFF];
+            record.get(fen);
+            games.putIfAbsent(id, Chess.fromFen(new String(fen, StandardCharsets.US_ASCII),
+                    new TimeControl(initial, increment, delay), TimeSource.SYSTEM));
+        } else if (type == MOVE) {
+            int ply = record.getInt();
+            int move = record.getShort() & 0xFFFF;
+            long elapsed = record.getLong();
+            Chess game = games.get(id);
+            if (game == null || game.getMoveCount() != ply || truncated.contains(id)) {
+                return;
+            }
+            if (game.isLegalMove(move)) {
+                game.move(move, elapsed);
+            } else {
+                truncated.add(id);
+            }
+        } else if (type == END) {
+            games.remove(id);
+        }
+    }
+
+    private static TreeMap<Long, Path> list(Path directory, String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path file : entries) {
+                String name = file.getFileName().toString();
+                try {
+                    files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), file);
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,134 @@
+package chess.io;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import chess.Chess;
+import chess.Position;
+import chess.TimeControl;
+import chess.TimeSource;
+import chess.metrics.Instrumentation;
+import chess.metrics.OperationEvent;
+import chess.metrics.Operation;
+
+public class GameRecordReader implements Closeable {
+    // well above any legal FEN and the longest possible game, so only damaged records hit them
+    private static final int MAX_FEN_LENGTH = 128;
+    private static final int MAX_MOVES = 1 << 16;
+
+    private final DataInputStream in;
+    private int[] moves = new int[256];
+    private long[] times = new long[256];
+
+    public GameRecordReader(InputStream in) {
+        this(new DataInputStream(new BufferedInputStream(in, 1 << 16)));
+    }
+
+    // reads without buffering ahead, so the caller can read other data between records
+    GameRecordReader(DataInputStream in) {
+        this.in = in;
+    }
+
+    // returns null once the stream is exhausted
+    public Chess read() throws IOException {
+        return read(TimeSource.SYSTEM);
+    }
+
+    // as above with the clocks of the returned game running on timeSource
+    public Chess read(TimeSource timeSource) throws IOException {
+        OperationEvent event = Instrumentation.start(Operation.SERIALIZATION);
+        try {
+            return readGame(timeSource);
+        } finally {
+            Instrumentation.end(event);
+        }
+    }
+
+    private Chess readGame(TimeSource timeSource) throws IOException {
+        int magic;
+        try {
+            magic = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (magic != GameRecordWriter.MAGIC && magic != GameRecordWriter.MAGIC_V1) {
+            throw new IOException("Not a game record");
+        }
+        long initialTime = readVarLong();
+        long increment = 0;
+        long delay = 0;
+        if (magic == GameRecordWriter.MAGIC) {
+            increment = readVarLong();
+            delay = readVarLong();
+        }
+        int fenLength = readLength(MAX_FEN_LENGTH, "FEN length");
+        String fen = Position.START_FEN;
+        if (fenLength > 0) {
+            byte[] bytes = new byte[fenLength];
+            in.readFully(bytes);
+            fen = new String(bytes, StandardCharsets.US_ASCII);
+        }
+        int count = readLength(MAX_MOVES, "Move count");
+        if (moves.length < count) {
+            moves = new int[Integer.highestOneBit(count) * 2];
+            times = new long[moves.length];
+        }
+        for (int i = 0; i < count; i++) {
+            moves[i] = in.readUnsignedShort();
+        }
+        long previousWhite = 0;
+        long previousBlack = 0;
+        for (int i = 0; i < count; i++) {
+            if (i % 2 == 0) {
+                previousWhite += unzigzag(readVarLong());
+                times[i] = previousWhite;
+            } else {
+                previousBlack += unzigzag(readVarLong());
+                times[i] = previousBlack;
+            }
+        }
+
+        Chess game = Chess.fromFen(fen, new TimeControl(initialTime, increment, delay), timeSource);
+        for (int i = 0; i < count; i++) {
+            if (!game.isLegalMove(moves[i])) {
+                throw new IOException("Illegal move at ply " + i);
+            }
+            game.move(moves[i], times[i]);
+        }
+        return game;
+    }
+
+    private int readLength(int max, String what) throws IOException {
+        long length = readVarLong();
+        if (length < 0 || length > max) {
+            throw new IOException(what + " out of range: " + length);
+        }
+        return (int) length;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
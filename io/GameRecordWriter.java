@@ -0,0 +1,98 @@
+package chess.io;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import chess.Chess;
+import chess.Position;
+import chess.metrics.Instrumentation;
+import chess.metrics.OperationEvent;
+import chess.metrics.Operation;
+
+/*
+ * Record layout, all integers big-endian or unsigned LEB128 varints:
+ *   int     magic "CGR2"
+ *   varint  initial time per side in milliseconds
+ *   varint  increment per move in milliseconds
+ *   varint  delay per move in milliseconds
+ *   varint  start FEN length in bytes, 0 for the standard start position, followed by the ASCII FEN
+ *   varint  move count
+ *   short   encoded move (see chess.Move), one per move
+ *   varint  zigzag delta of each move's think time against the same side's previous move
+ * "CGR1" records are the same without the increment and delay.
+ */
+public class GameRecordWriter implements Closeable, Flushable {
+    static final int MAGIC_V1 = 0x43475231;
+    static final int MAGIC = 0x43475232;
+
+    private final DataOutputStream out;
+
+    public GameRecordWriter(OutputStream out) {
+        this(new DataOutputStream(new BufferedOutputStream(out, 1 << 16)));
+    }
+
+    // writes straight into a stream that other data is interleaved with
+    GameRecordWriter(DataOutputStream out) {
+        this.out = out;
+    }
+
+    public void write(Chess game) throws IOException {
+        OperationEvent event = Instrumentation.start(Operation.SERIALIZATION);
+        out.writeInt(MAGIC);
+        writeVarLong(game.getInitialTime());
+        writeVarLong(game.getTimeControl().getIncrementMillis());
+        writeVarLong(game.getTimeControl().getDelayMillis());
+        if (game.getStartFen().equals(Position.START_FEN)) {
+            writeVarLong(0);
+        } else {
+            byte[] fen = game.getStartFen().getBytes(StandardCharsets.US_ASCII);
+            writeVarLong(fen.length);
+            out.write(fen);
+        }
+        int count = game.getMoveCount();
+        writeVarLong(count);
+        for (int i = 0; i < count; i++) {
+            out.writeShort(game.getMove(i));
+        }
+        long previousWhite = 0;
+        long previousBlack = 0;
+        for (int i = 0; i < count; i++) {
+            long time = game.getMoveTime(i);
+            if (i % 2 == 0) {
+                writeVarLong(zigzag(time - previousWhite));
+                previousWhite = time;
+            } else {
+                writeVarLong(zigzag(time - previousBlack));
+                previousBlack = time;
+            }
+        }
+        Instrumentation.end(event);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
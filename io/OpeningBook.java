@@ -0,0 +1,130 @@
+package chess.io;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.Chess;
+import chess.Move;
+import chess.Piece;
+
+/*
+ * Reads books in the Polyglot layout: 16-byte big-endian entries sorted by unsigned key,
+ *   long   position key
+ *   short  move, bits 0-2 to file, 3-5 to rank, 6-8 from file, 9-11 from rank, 12-14 promotion piece
+ *   short  weight
+ *   int    learn data, ignored
+ * Castling is stored as the king moving onto its own rook. Books from Polyglot tools are keyed by
+ * PolyglotKeys and opened with the Random64 table; without one, keys are this library's Zobrist hashes
+ * (Chess.getPositionHash) as OpeningBookWriter writes them by default. The file stays mapped and is shared
+ * through the page cache; lookups do not allocate.
+ */
+public class OpeningBook {
+    static final int ENTRY_SIZE = 16;
+    private static final int SEGMENT_BITS = 30;
+
+    private final MappedByteBuffer[] segments;
+    private final long entries;
+    // null for books keyed by Chess.getPositionHash
+    private final PolyglotKeys keys;
+
+    private OpeningBook(MappedByteBuffer[] segments, long entries, PolyglotKeys keys) {
+        this.segments = segments;
+        this.entries = entries;
+        this.keys = keys;
+    }
+
+    public static OpeningBook open(Path file) throws IOException {
+        return open(file, null);
+    }
+
+    // a book keyed by Polyglot keys, e.g. open(book, PolyglotKeys.load(random64)) for one from Polyglot tools
+    public static OpeningBook open(Path file, PolyglotKeys keys) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size() - channel.size() % ENTRY_SIZE;
+            // a mapping is limited to 2GB, so larger books are mapped in 1GB segments of whole entries
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size >>> SEGMENT_BITS) + 1)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long) i << SEGMENT_BITS;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(1L << SEGMENT_BITS, size - start));
+            }
+            return new OpeningBook(segments, size / ENTRY_SIZE, keys);
+        }
+    }
+
+    public long size() {
+        return entries;
+    }
+
+    // fills moves and weights for the game's current position and returns how many there are; entries that
+    // are not legal there, from a hash collision or a damaged book, are left out
+    public int lookup(Chess chess, int[] moves, int[] weights) {
+        long key = keys == null ? chess.getPositionHash() : keys.key(chess);
+        int count = 0;
+        for (long i = firstIndex(key); i < entries && key(i) == key && count < moves.length; i++) {
+            int move = rawMove(i);
+            int fromRow = move >>> 9 & 7;
+            int fromColumn = move >>> 6 & 7;
+            int toRow = move >>> 3 & 7;
+            int toColumn = move & 7;
+            int promotion = move >>> 12 & 7;
+            int encoded = chess.encodeMove(fromRow, fromColumn, toRow, toColumn,
+                    promotion == 0 ? Piece.QUEEN : promotion);
+            // castling was turned into the king's real target square by encodeMove
+            int to = Move.to(encoded);
+            if (promotion > Piece.QUEEN || promotion != 0 && !Move.isPromotion(encoded)
+                    || !chess.isValidAction(fromRow, fromColumn, to >>> 3, to & 7)) {
+                continue;
+            }
+            moves[count] = encoded;
+            weights[count] = weight(i);
+            count++;
+        }
+        return count;
+    }
+
+    // weight of a move in the game's current position, 0 when it is not a book move
+    public int weightOf(Chess chess, int encodedMove, int[] moves, int[] weights) {
+        int count = lookup(chess, moves, weights);
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == encodedMove) {
+                return weights[i];
+            }
+        }
+        return 0;
+    }
+
+    private long firstIndex(long key) {
+        long low = 0;
+        long high = entries;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(key(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long key(long index) {
+        long offset = index * ENTRY_SIZE;
+        return segments[(int) (offset >>> SEGMENT_BITS)].getLong((int) (offset & ((1 << SEGMENT_BITS) - 1)));
+    }
+
+    private int rawMove(long index) {
+        long offset = index * ENTRY_SIZE + 8;
+        return segments[(int) (offset >>> SEGMENT_BITS)].getShort((int) (offset & ((1 << SEGMENT_BITS) - 1)))
+                & 0xFFFF;
+    }
+
+    private int weight(long index) {
+        long offset = index * ENTRY_SIZE + 10;
+        return segments[(int) (offset >>> SEGMENT_BITS)].getShort((int) (offset & ((1 << SEGMENT_BITS) - 1)))
+                & 0xFFFF;
+    }
+}
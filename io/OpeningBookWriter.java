@@ -0,0 +1,75 @@
+package chess.io;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import chess.Bitboards;
+import chess.Chess;
+import chess.Move;
+import chess.Position;
+
+// counts how often each move was played from each position and writes the counts as an OpeningBook
+public class OpeningBookWriter {
+    private final Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+    private final PolyglotKeys keys;
+
+    // keyed by Chess.getPositionHash
+    public OpeningBookWriter() {
+        this(null);
+    }
+
+    // keyed like Polyglot's own books, so Polyglot tools can read the result
+    public OpeningBookWriter(PolyglotKeys keys) {
+        this.keys = keys;
+    }
+
+    public void add(Chess game, int maxPly) {
+        Position position = Position.fromFen(game.getStartFen());
+        int plies = Math.min(maxPly, game.getMoveCount());
+        for (int i = 0; i < plies; i++) {
+            int move = game.getMove(i);
+            long key = keys == null ? position.getHash() : keys.key(position);
+            counts.computeIfAbsent(key, k -> new HashMap<>()).merge(bookMove(move), 1, Integer::sum);
+            position.makeMove(move);
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        Map<Long, Map<Integer, Integer>> sorted = new TreeMap<>(Long::compareUnsigned);
+        sorted.putAll(counts);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file),
+                1 << 16))) {
+            for (Map.Entry<Long, Map<Integer, Integer>> position : sorted.entrySet()) {
+                List<Map.Entry<Integer, Integer>> moves = new ArrayList<>(position.getValue().entrySet());
+                moves.sort((a, b) -> b.getValue() - a.getValue());
+                for (Map.Entry<Integer, Integer> move : moves) {
+                    out.writeLong(position.getKey());
+                    out.writeShort(move.getKey());
+                    out.writeShort(Math.min(move.getValue(), 0xFFFF));
+                    out.writeInt(0);
+                }
+            }
+        }
+    }
+
+    private static int bookMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (Move.flags(move) == Move.KING_CASTLE) {
+            to = from + 3;
+        } else if (Move.flags(move) == Move.QUEEN_CASTLE) {
+            to = from - 4;
+        }
+        int promotion = Move.isPromotion(move) ? Move.promotionType(move) : 0;
+        return promotion << 12 | Bitboards.row(from) << 9 | Bitboards.column(from) << 6 | Bitboards.row(to) << 3
+                | Bitboards.column(to);
+    }
+}
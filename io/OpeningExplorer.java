@@ -0,0 +1,259 @@
+package chess.io;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.Chess;
+import chess.GameState;
+import chess.Position;
+
+/*
+ * Game statistics by position hash in a memory-mapped open-addressing table, so transpositions share
+ * one entry. A 64-byte header (int magic "CEX1", int maxPly, long capacity, long used) is followed by
+ * capacity 64-byte entries, all big-endian:
+ *   long   position key (Chess.getPositionHash), 0 for an empty slot
+ *   int    games, white wins, black wins, draws
+ *   long   MOVES_PER_ENTRY move counters, the encoded move in the top 16 bits and its count below
+ * Only the most played moves are kept: a new move replaces the least played one and takes over its
+ * count, so counts of kept moves are upper bounds once a position has more than MOVES_PER_ENTRY moves.
+ * Updates are atomic on the mapping, so games can be added from many threads while others query;
+ * lookups read the mapping directly and never allocate.
+ */
+public class OpeningExplorer {
+    public static final int MOVES_PER_ENTRY = 5;
+    static final int MAGIC = 0x43455831;
+    static final int ENTRY_SIZE = 64;
+    private static final int SEGMENT_BITS = 30;
+    private static final int GAMES = 8;
+    private static final int MOVES = 24;
+    private static final long COUNT_MASK = (1L << 48) - 1;
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final MappedByteBuffer[] segments;
+    private final long capacity;
+    private final int maxPly;
+
+    private OpeningExplorer(MappedByteBuffer[] segments, long capacity, int maxPly) {
+        this.segments = segments;
+        this.capacity = capacity;
+        this.maxPly = maxPly;
+    }
+
+    // an empty index of at least the given number of positions, counting the first maxPly plies of each game
+    public static OpeningExplorer create(Path file, long positions, int maxPly) throws IOException {
+        long capacity = Long.highestOneBit(Math.max(positions * 8 / 7, 1)) << 1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer[] segments = map(channel, ENTRY_SIZE + capacity * ENTRY_SIZE);
+            segments[0].putInt(0, MAGIC);
+            segments[0].putInt(4, maxPly);
+            segments[0].putLong(8, capacity);
+            return new OpeningExplorer(segments, capacity, maxPly);
+        }
+    }
+
+    public static OpeningExplorer open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer[] segments = map(channel, channel.size());
+            long capacity = segments[0].getLong(8);
+            if (segments[0].getInt(0) != MAGIC || channel.size() != ENTRY_SIZE + capacity * ENTRY_SIZE) {
+                throw new IOException("Not an explorer index: " + file);
+            }
+            return new OpeningExplorer(segments, capacity, segments[0].getInt(4));
+        }
+    }
+
+    // e.g. new PgnIngester().ingest(pgn, (game, result) -> explorer.add(game, result)) for a parallel build
+    public void add(Chess game, int result) {
+        Position position = Position.fromFen(game.getStartFen());
+        int plies = Math.min(maxPly, game.getMoveCount());
+        for (int i = 0; i <= plies; i++) {
+            long entry = claim(position.getHash());
+            long offset = offset(entry);
+            MappedByteBuffer segment = segments[(int) (offset >>> SEGMENT_BITS)];
+            int index = (int) (offset & ((1 << SEGMENT_BITS) - 1));
+            INT.getAndAdd(segment, index + GAMES, 1);
+            if (result != PgnReader.UNKNOWN) {
+                INT.getAndAdd(segment, index + GAMES + 4 * result, 1);
+            }
+            if (i < game.getMoveCount()) {
+                int move = game.getMove(i);
+                countMove(segment, index, move);
+                if (i < plies) {
+                    position.makeMove(move);
+                }
+            }
+        }
+    }
+
+    // a finished game, scored from how it ended; resignations and other ongoing games count as UNKNOWN
+    public void add(Chess game) {
+        GameState state = game.getGameState();
+        int result = PgnReader.UNKNOWN;
+        if (state == GameState.CHECKMATE || state == GameState.FLAG) {
+            result = game.isWhiteTurn() ? PgnReader.BLACK_WINS : PgnReader.WHITE_WINS;
+        } else if (state != GameState.ONGOING) {
+            result = PgnReader.DRAW;
+        }
+        add(game, result);
+    }
+
+    // the entry of the position, -1 when no indexed game reached it
+    public long find(long positionHash) {
+        long key = positionHash == 0 ? 1 : positionHash;
+        long mask = capacity - 1;
+        for (long entry = key & mask;; entry = entry + 1 & mask) {
+            long stored = entryLong(entry, 0);
+            if (stored == key) {
+                return entry;
+            }
+            if (stored == 0) {
+                return -1;
+            }
+        }
+    }
+
+    public long find(Chess game) {
+        return find(game.getPositionHash());
+    }
+
+    public int getGames(long entry) {
+        return entryInt(entry, GAMES);
+    }
+
+    public int getWhiteWins(long entry) {
+        return entryInt(entry, GAMES + 4 * PgnReader.WHITE_WINS);
+    }
+
+    public int getBlackWins(long entry) {
+        return entryInt(entry, GAMES + 4 * PgnReader.BLACK_WINS);
+    }
+
+    public int getDraws(long entry) {
+        return entryInt(entry, GAMES + 4 * PgnReader.DRAW);
+    }
+
+    // fills moves and counts, most played first, and returns how many there are
+    public int getMoves(long entry, int[] moves, int[] counts) {
+        int count = 0;
+        for (int i = 0; i < MOVES_PER_ENTRY && count < moves.length; i++) {
+            long counter = entryLong(entry, MOVES + 8 * i);
+            if (counter == 0) {
+                break;
+            }
+            int move = (int) (counter >>> 48);
+            int played = (int) Math.min(counter & COUNT_MASK, Integer.MAX_VALUE);
+            int j = count++;
+            for (; j > 0 && counts[j - 1] < played; j--) {
+                moves[j] = moves[j - 1];
+                counts[j] = counts[j - 1];
+            }
+            moves[j] = move;
+            counts[j] = played;
+        }
+        return count;
+    }
+
+    public long size() {
+        return segments[0].getLong(16);
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    // writes changed pages back; without it they still reach the file when the OS gets to them
+    public void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    private long claim(long positionHash) {
+        long key = positionHash == 0 ? 1 : positionHash;
+        long mask = capacity - 1;
+        for (long entry = key & mask;; entry = entry + 1 & mask) {
+            long offset = offset(entry);
+            MappedByteBuffer segment = segments[(int) (offset >>> SEGMENT_BITS)];
+            int index = (int) (offset & ((1 << SEGMENT_BITS) - 1));
+            long stored = (long) LONG.getVolatile(segment, index);
+            if (stored == 0) {
+                // a full open-addressing table would probe forever, so stop at 7/8 and always keep a slot free
+                if ((long) LONG.getAndAdd(segments[0], 16, 1L) >= capacity - Math.max(1, capacity / 8)) {
+                    LONG.getAndAdd(segments[0], 16, -1L);
+                    throw new IllegalStateException("Explorer index is full at " + capacity + " positions");
+                }
+                stored = (long) LONG.compareAndExchange(segment, index, 0L, key);
+                if (stored == 0) {
+                    return entry;
+                }
+                LONG.getAndAdd(segments[0], 16, -1L);
+            }
+            if (stored == key) {
+                return entry;
+            }
+        }
+    }
+
+    private static void countMove(MappedByteBuffer segment, int index, int move) {
+        long tag = (long) move << 48;
+        while (true) {
+            int least = -1;
+            long leastCounter = Long.MAX_VALUE;
+            for (int i = 0; i < MOVES_PER_ENTRY; i++) {
+                int slot = index + MOVES + 8 * i;
+                long counter = (long) LONG.getVolatile(segment, slot);
+                if (counter == 0) {
+                    if ((long) LONG.compareAndExchange(segment, slot, 0L, tag | 1) == 0) {
+                        return;
+                    }
+                    counter = (long) LONG.getVolatile(segment, slot);
+                }
+                if ((counter & ~COUNT_MASK) == tag) {
+                    LONG.getAndAdd(segment, slot, 1L);
+                    return;
+                }
+                if ((counter & COUNT_MASK) < (leastCounter & COUNT_MASK)) {
+                    least = slot;
+                    leastCounter = counter;
+                }
+            }
+            if ((long) LONG.compareAndExchange(segment, least, leastCounter, tag | (leastCounter & COUNT_MASK) + 1)
+                    == leastCounter) {
+                return;
+            }
+        }
+    }
+
+    private long entryLong(long entry, int field) {
+        long offset = offset(entry) + field;
+        return segments[(int) (offset >>> SEGMENT_BITS)].getLong((int) (offset & ((1 << SEGMENT_BITS) - 1)));
+    }
+
+    private int entryInt(long entry, int field) {
+        long offset = offset(entry) + field;
+        return segments[(int) (offset >>> SEGMENT_BITS)].getInt((int) (offset & ((1 << SEGMENT_BITS) - 1)));
+    }
+
+    private static long offset(long entry) {
+        return ENTRY_SIZE + entry * ENTRY_SIZE;
+    }
+
+    // a mapping is limited to 2GB, so larger indexes are mapped in 1GB segments of whole entries
+    private static MappedByteBuffer[] map(FileChannel channel, long size) throws IOException {
+        MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size - 1 >>> SEGMENT_BITS) + 1)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << SEGMENT_BITS;
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start,
+                    Math.min(1L << SEGMENT_BITS, size - start));
+        }
+        return segments;
+    }
+}
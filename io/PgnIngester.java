@@ -0,0 +1,125 @@
+package chess.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import chess.Chess;
+
+public class PgnIngester {
+    private static final int BOUNDARY_WINDOW = 1 << 16;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private long errors;
+
+    public PgnIngester() {
+        this(ForkJoinPool.commonPool(), 4 << 20);
+    }
+
+    public PgnIngester(ForkJoinPool pool, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    // handler is called concurrently from the pool's threads
+    public long ingest(Path file, Consumer<Chess> handler) throws IOException {
+        return ingest(file, (game, result) -> handler.accept(game));
+    }
+
+    // as above with each game's result, one of the PgnReader result constants
+    public long ingest(Path file, ObjIntConsumer<Chess> handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Long> bounds = new ArrayList<>();
+            bounds.add(0L);
+            for (long offset = chunkSize; offset < size; offset += chunkSize) {
+                long start = findGameStart(channel, Math.max(offset, bounds.get(bounds.size() - 1) + 1), size);
+                if (start >= size) {
+                    break;
+                }
+                bounds.add(start);
+                offset = start;
+            }
+            bounds.add(size);
+
+            List<ForkJoinTask<int[]>> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.size(); i++) {
+                long start = bounds.get(i);
+                long end = bounds.get(i + 1);
+                tasks.add(pool.submit(() -> {
+                    MappedByteBuffer buffer;
+                    try {
+                        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    PgnReader reader = new PgnReader();
+                    int games = reader.read(buffer, 0, buffer.limit(), handler);
+                    return new int[] { games, reader.getErrorCount() };
+                }));
+            }
+            long games = 0;
+            errors = 0;
+            for (ForkJoinTask<int[]> task : tasks) {
+                try {
+                    int[] result = task.join();
+                    games += result[0];
+                    errors += result[1];
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            return games;
+        }
+    }
+
+    public long getErrorCount() {
+        return errors;
+    }
+
+    // a game starts at the first tag line that follows movetext, so splits never cut through a game
+    private static long findGameStart(FileChannel channel, long from, long size) throws IOException {
+        int window = BOUNDARY_WINDOW;
+        while (true) {
+            int length = (int) Math.min(window, size - from);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+            int i = 0;
+            while (i < length && buffer.get(i) != '\n') {
+                i++;
+            }
+            boolean sawMovetext = false;
+            while (++i < length) {
+                int lineStart = i;
+                while (i < length && (buffer.get(i) == ' ' || buffer.get(i) == '\r' || buffer.get(i) == '\t')) {
+                    i++;
+                }
+                if (i < length && buffer.get(i) == '[' && sawMovetext) {
+                    return from + lineStart;
+                }
+                if (i < length && buffer.get(i) != '\n' && buffer.get(i) != '[') {
+                    sawMovetext = true;
+                }
+                while (i < length && buffer.get(i) != '\n') {
+                    i++;
+                }
+            }
+            if (from + length >= size) {
+                return size;
+            }
+            window *= 2;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package chess.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import chess.Chess;
+import chess.Move;
+
+public class PgnReader {
+    // results as handed to an ObjIntConsumer handler
+    public static final int UNKNOWN = 0;
+    public static final int WHITE_WINS = 1;
+    public static final int BLACK_WINS = 2;
+    public static final int DRAW = 3;
+
+    private final AsciiSequence token = new AsciiSequence();
+    private Chess game;
+    private String fen;
+    private int result;
+    private boolean failed;
+    private int games;
+    private int errors;
+
+    public int read(String pgn, Consumer<Chess> handler) {
+        ByteBuffer buffer = ByteBuffer.wrap(pgn.getBytes(StandardCharsets.ISO_8859_1));
+        return read(buffer, 0, buffer.limit(), handler);
+    }
+
+    // parses every game in [start, end) of an ASCII buffer and returns how many were handed to handler
+    public int read(ByteBuffer buffer, int start, int end, Consumer<Chess> handler) {
+        return read(buffer, start, end, (game, result) -> handler.accept(game));
+    }
+
+    // as above, also passing the game's result token as WHITE_WINS, BLACK_WINS, DRAW or UNKNOWN
+    public int read(ByteBuffer buffer, int start, int end, ObjIntConsumer<Chess> handler) {
+        games = 0;
+        errors = 0;
+        game = null;
+        fen = null;
+        result = UNKNOWN;
+        failed = false;
+        int i = start;
+        while (i < end) {
+            byte c = buffer.get(i);
+            if (c == '[') {
+                if (game != null || failed) {
+                    finishGame(handler);
+                }
+                i = readTag(buffer, i, end);
+            } else if (c == '{') {
+                i = skipPast(buffer, i, end, (byte) '}');
+            } else if (c == ';' || c == '%') {
+                i = skipPast(buffer, i, end, (byte) '\n');
+            } else if (c == '(') {
+                i = skipVariation(buffer, i, end);
+            } else if (c <= ' ' || c == ')') {
+                i++;
+            } else {
+                int tokenEnd = i;
+                while (tokenEnd < end && !isDelimiter(buffer.get(tokenEnd))) {
+                    tokenEnd++;
+                }
+                readToken(buffer, i, tokenEnd, handler);
+                i = tokenEnd;
+            }
+        }
+        if (game != null || failed) {
+            finishGame(handler);
+        }
+        return games;
+    }
+
+    // games of the last read that were dropped for an illegal move or a bad FEN
+    public int getErrorCount() {
+        return errors;
+    }
+
+    private void readToken(ByteBuffer buffer, int start, int end, ObjIntConsumer<Chess> handler) {
+        token.set(buffer, start, end - start);
+        if (token.is("1-0") || token.is("0-1") || token.is("1/2-1/2") || token.is("*")) {
+            result = token.is("1-0") ? WHITE_WINS : token.is("0-1") ? BLACK_WINS : token.is("*") ? UNKNOWN : DRAW;
+            if (game == null && !failed) {
+                startGame();
+            }
+            finishGame(handler);
+            return;
+        }
+        if (buffer.get(start) == '$') {
+            return;
+        }
+        // move numbers: "12." and "12..." or glued to the move as in "12.e4"
+        int i = start;
+        while (i < end && buffer.get(i) >= '0' && buffer.get(i) <= '9') {
+            i++;
+        }
+        if (i < end && buffer.get(i) == '.') {
+            while (i < end && buffer.get(i) == '.') {
+                i++;
+            }
+            start = i;
+        }
+        if (start == end || failed) {
+            return;
+        }
+        if (game == null) {
+            startGame();
+            if (failed) {
+                return;
+            }
+        }
+        token.set(buffer, start, end - start);
+        int move = game.parseMove(token);
+        if (move == Move.NONE) {
+            failed = true;
+            return;
+        }
+        game.move(move, 0);
+    }
+
+    private void startGame() {
+        try {
+            game = fen == null ? new Chess() : Chess.fromFen(fen);
+        } catch (IllegalArgumentException e) {
+            failed = true;
+        }
+    }
+
+    private void finishGame(ObjIntConsumer<Chess> handler) {
+        if (failed) {
+            errors++;
+        } else if (game != null) {
+            handler.accept(game, result);
+            games++;
+        }
+        game = null;
+        fen = null;
+        result = UNKNOWN;
+        failed = false;
+    }
+
+    private int readTag(ByteBuffer buffer, int start, int end) {
+        int lineEnd = skipPast(buffer, start, end, (byte) '\n');
+        token.set(buffer, start + 1, Math.min(4, lineEnd - start - 1));
+        if (token.is("FEN ")) {
+            int open = start;
+            while (open < lineEnd && buffer.get(open) != '"') {
+                open++;
+            }
+            int close = open + 1;
+            while (close < lineEnd && buffer.get(close) != '"') {
+                close++;
+            }
+            if (close < lineEnd) {
+                byte[] bytes = new byte[close - open - 1];
+                buffer.get(open + 1, bytes);
+                fen = new String(bytes, StandardCharsets.ISO_8859_1);
+            }
+        }
+        return lineEnd;
+    }
+
+    private static int skipPast(ByteBuffer buffer, int i, int end, byte terminator) {
+        while (i < end && buffer.get(i) != terminator) {
+            i++;
+        }
+        return Math.min(end, i + 1);
+    }
+
+    private static int skipVariation(ByteBuffer buffer, int i, int end) {
+        int depth = 0;
+        while (i < end) {
+            byte c = buffer.get(i);
+            if (c == '{') {
+                i = skipPast(buffer, i, end, (byte) '}');
+                continue;
+            }
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return end;
+    }
+
+    private static boolean isDelimiter(byte c) {
+        return c <= ' ' || c == '{' || c == '}' || c == '(' || c == ')' || c == ';' || c == '[';
+    }
+
+    // reusable view of a byte range so tokens reach the SAN parser without a String copy
+    private static class AsciiSequence implements CharSequence {
+        private ByteBuffer buffer;
+        private int offset;
+        private int length;
+
+        void set(ByteBuffer buffer, int offset, int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        boolean is(String text) {
+            if (text.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (charAt(i) != text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(offset + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(length);
+            for (int i = 0; i < length; i++) {
+                builder.append(charAt(i));
+            }
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package chess.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import chess.Bitboards;
+import chess.Chess;
+import chess.Piece;
+import chess.Position;
+
+/*
+ * Position keys of the Polyglot book format: the XOR of Random64 entries for every piece on its square
+ * (64 * kind + square, kind 0 a black pawn, 1 a white pawn and so on up to 11 a white king), every castling
+ * right (768 white short, 769 white long, 770 black short, 771 black long), the en passant file (772 + file)
+ * and white to move (780). The en passant file only counts when a pawn of the side to move stands next to
+ * the pawn that just moved two squares, whether or not the capture would be legal.
+ */
+public final class PolyglotKeys {
+    public static final int SIZE = 781;
+    static final int CASTLING = 768;
+    static final int EN_PASSANT = 772;
+    static final int TURN = 780;
+    private static final int[] CASTLING_RIGHTS = { Position.WHITE_KINGSIDE, Position.WHITE_QUEENSIDE,
+            Position.BLACK_KINGSIDE, Position.BLACK_QUEENSIDE };
+    private static final Pattern CONSTANT = Pattern.compile("0[xX]([0-9a-fA-F]{16})");
+
+    private final long[] random64;
+
+    public PolyglotKeys(long[] random64) {
+        if (random64.length != SIZE) {
+            throw new IllegalArgumentException("Random64 needs " + SIZE + " entries, got " + random64.length);
+        }
+        this.random64 = random64.clone();
+    }
+
+    // the Random64 table from any text that lists it in order as 0x-prefixed 64-bit hex constants, e.g.
+    // Polyglot's own random.cpp or the book format description it ships with
+    public static PolyglotKeys load(Path file) throws IOException {
+        Matcher matcher = CONSTANT.matcher(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII));
+        long[] random64 = new long[SIZE];
+        int count = 0;
+        while (matcher.find()) {
+            if (count == SIZE) {
+                throw new IOException("More than " + SIZE + " Random64 constants in " + file);
+            }
+            random64[count++] = Long.parseUnsignedLong(matcher.group(1), 16);
+        }
+        if (count != SIZE) {
+            throw new IOException("Only " + count + " of " + SIZE + " Random64 constants in " + file);
+        }
+        return new PolyglotKeys(random64);
+    }
+
+    public long key(Position position) {
+        long key = 0;
+        for (int piece = 0; piece < 12; piece++) {
+            key ^= pieceKeys(piece, position.pieces(piece));
+        }
+        int side = position.getSideToMove();
+        return key ^ stateKeys(position.getCastlingRights(), position.getEnPassantSquare(), side,
+                position.pieces(Piece.of(side, Piece.PAWN)));
+    }
+
+    // reads the game in place, so book lookups stay free of allocation
+    public long key(Chess chess) {
+        long key = 0;
+        for (int piece = 0; piece < 12; piece++) {
+            key ^= pieceKeys(piece, chess.pieces(piece));
+        }
+        int side = chess.isWhiteTurn() ? Piece.WHITE : Piece.BLACK;
+        return key ^ stateKeys(chess.getCastlingRights(), chess.getEnPassantSquare(), side,
+                chess.pieces(Piece.of(side, Piece.PAWN)));
+    }
+
+    private long pieceKeys(int piece, long squares) {
+        int kind = 2 * Piece.type(piece) + (Piece.colour(piece) == Piece.WHITE ? 1 : 0);
+        long key = 0;
+        for (long bits = squares; bits != 0; bits &= bits - 1) {
+            key ^= random64[64 * kind + Long.numberOfTrailingZeros(bits)];
+        }
+        return key;
+    }
+
+    private long stateKeys(int castlingRights, int enPassantSquare, int side, long ownPawns) {
+        long key = 0;
+        for (int i = 0; i < CASTLING_RIGHTS.length; i++) {
+            if ((castlingRights & CASTLING_RIGHTS[i]) != 0) {
+                key ^= random64[CASTLING + i];
+            }
+        }
+        // Position already drops squares no pawn can take on, the key states the rule rather than rely on it
+        if (enPassantSquare >= 0 && (Bitboards.pawnAttacks(side ^ 1, enPassantSquare) & ownPawns) != 0) {
+            key ^= random64[EN_PASSANT + Bitboards.column(enPassantSquare)];
+        }
+        if (side == Piece.WHITE) {
+            key ^= random64[TURN];
+        }
+        return key;
+    }
+}
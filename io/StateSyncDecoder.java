@@ -0,0 +1,104 @@
+package chess.io;
+
+import java.nio.ByteBuffer;
+
+import chess.Move;
+import chess.Piece;
+
+// the spectator side of StateSyncEncoder: applies frames in order and notices when one went missing
+public class StateSyncDecoder {
+    private final byte[] board = new byte[64];
+    private boolean synced;
+    private int sequence;
+    private int ply;
+    private int timeWhite;
+    private int timeBlack;
+    private boolean blackToMove;
+    private int lastMove = Move.NONE;
+
+    // false when the frame does not follow the last one applied; the state is then unchanged until a snapshot
+    public boolean apply(ByteBuffer frame) {
+        int typeAndFlags = frame.get(frame.position()) & 0xFF;
+        int frameSequence = frame.getInt(frame.position() + 1);
+        int type = typeAndFlags & 0x0F;
+        if (type == StateSyncEncoder.DELTA && (!synced || frameSequence != sequence + 1)) {
+            synced = false;
+            return false;
+        }
+        if (type != StateSyncEncoder.DELTA && type != StateSyncEncoder.SNAPSHOT) {
+            throw new IllegalArgumentException("Unknown frame type " + type);
+        }
+        frame.get();
+        sequence = frame.getInt();
+        ply = frame.getShort() & 0xFFFF;
+        if ((typeAndFlags & StateSyncEncoder.WHITE_CLOCK) != 0) {
+            timeWhite = frame.getInt();
+        }
+        if ((typeAndFlags & StateSyncEncoder.BLACK_CLOCK) != 0) {
+            timeBlack = frame.getInt();
+        }
+        blackToMove = (typeAndFlags & StateSyncEncoder.BLACK_TO_MOVE) != 0;
+        if (type == StateSyncEncoder.SNAPSHOT) {
+            for (int square = 0; square < 64; square += 2) {
+                int packed = frame.get();
+                board[square] = (byte) (packed & 0x0F);
+                board[square + 1] = (byte) (packed >>> 4 & 0x0F);
+            }
+            lastMove = Move.NONE;
+        } else {
+            int moves = frame.get() & 0xFF;
+            for (int i = 0; i < moves; i++) {
+                lastMove = frame.getShort() & 0xFFFF;
+            }
+            int changes = frame.get() & 0xFF;
+            for (int i = 0; i < changes; i++) {
+                board[frame.get()] = frame.get();
+            }
+        }
+        synced = true;
+        return true;
+    }
+
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    public int getMoveCount() {
+        return ply;
+    }
+
+    public boolean isWhiteTurn() {
+        return !blackToMove;
+    }
+
+    public long getTimeWhite() {
+        return timeWhite;
+    }
+
+    public long getTimeBlack() {
+        return timeBlack;
+    }
+
+    public int pieceAt(int square) {
+        return board[square] - 1;
+    }
+
+    // the latest move from a delta, Move.NONE right after a snapshot
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    // the same text as Chess.getBoardString, for clients that still render from it
+    public String getBoardString() {
+        StringBuilder out = new StringBuilder(96);
+        out.append(blackToMove ? 'b' : 'w').append(',').append(timeWhite).append(',').append(timeBlack).append(',');
+        for (int square = 0; square < 64; square++) {
+            out.append(Piece.toChar(pieceAt(square)));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package chess.io;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import chess.Chess;
+
+/*
+ * Turns a game into a stream of spectator frames, each a delta against the state the previous frame left.
+ * Frames are big-endian:
+ *   byte   type in the low 4 bits (SNAPSHOT or DELTA), WHITE_CLOCK, BLACK_CLOCK and BLACK_TO_MOVE flags above
+ *   int    sequence number, one more than the frame before
+ *   short  moves played so far
+ *   int    white's and black's clock in milliseconds, each only when its flag is set
+ *   snapshot: 32 bytes, square 2i in the low and 2i + 1 in the high nibble, 0 empty or piece + 1
+ *   delta:    byte count and the moves made since the last frame as shorts, byte count and the changed
+ *             squares as (byte square, byte 0 or piece + 1)
+ * A snapshot always carries both clocks. A client that sees a gap in the sequence asks for snapshot(),
+ * which describes the state after the latest frame, and goes on with the deltas that follow it.
+ */
+public class StateSyncEncoder {
+    static final int SNAPSHOT = 1;
+    static final int DELTA = 2;
+    static final int WHITE_CLOCK = 0x10;
+    static final int BLACK_CLOCK = 0x20;
+    static final int BLACK_TO_MOVE = 0x40;
+    private static final int HEADER_SIZE = 15;
+
+    private final byte[] board = new byte[64];
+    private final byte[] next = new byte[64];
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+    private int sequence;
+    private int ply = -1;
+    private int timeWhite;
+    private int timeBlack;
+    private boolean blackToMove;
+
+    // the next frame for the game, as a read-only buffer that can be handed to any number of readers
+    public ByteBuffer encode(Chess game) {
+        int count = game.getMoveCount();
+        int newMoves = count - ply;
+        if (ply < 0 || newMoves < 0 || newMoves > 255) {
+            readBoard(game, board);
+            update(game, count);
+            sequence++;
+            return writeSnapshot();
+        }
+        readBoard(game, next);
+        int white = clock(game.getTimeWhite());
+        int black = clock(game.getTimeBlack());
+        int flags = (white != timeWhite ? WHITE_CLOCK : 0) | (black != timeBlack ? BLACK_CLOCK : 0)
+                | (game.isWhiteTurn() ? 0 : BLACK_TO_MOVE);
+        update(game, count);
+        sequence++;
+
+        ensureCapacity(HEADER_SIZE + 2 + 2 * newMoves + 2 * 64);
+        writeHeader(DELTA | flags);
+        scratch.put((byte) newMoves);
+        for (int i = count - newMoves; i < count; i++) {
+            scratch.putShort((short) game.getMove(i));
+        }
+        int changesAt = scratch.position();
+        scratch.put((byte) 0);
+        int changes = 0;
+        for (int square = 0; square < 64; square++) {
+            if (next[square] != board[square]) {
+                board[square] = next[square];
+                scratch.put((byte) square).put(next[square]);
+                changes++;
+            }
+        }
+        scratch.put(changesAt, (byte) changes);
+        return frame();
+    }
+
+    // the full state after the latest frame, null before the first one
+    public ByteBuffer snapshot() {
+        return ply < 0 ? null : writeSnapshot();
+    }
+
+    public int getSequence() {
+        return sequence;
+    }
+
+    private ByteBuffer writeSnapshot() {
+        ensureCapacity(HEADER_SIZE + 32);
+        writeHeader(SNAPSHOT | WHITE_CLOCK | BLACK_CLOCK | (blackToMove ? BLACK_TO_MOVE : 0));
+        for (int square = 0; square < 64; square += 2) {
+            scratch.put((byte) (board[square] | board[square + 1] << 4));
+        }
+        return frame();
+    }
+
+    private void writeHeader(int typeAndFlags) {
+        scratch.clear();
+        scratch.put((byte) typeAndFlags);
+        scratch.putInt(sequence);
+        scratch.putShort((short) ply);
+        if ((typeAndFlags & WHITE_CLOCK) != 0) {
+            scratch.putInt(timeWhite);
+        }
+        if ((typeAndFlags & BLACK_CLOCK) != 0) {
+            scratch.putInt(timeBlack);
+        }
+    }
+
+    // a frame is shared by all its readers and outlives the next encode, so it gets an array of its own
+    private ByteBuffer frame() {
+        return ByteBuffer.wrap(Arrays.copyOf(scratch.array(), scratch.position())).asReadOnlyBuffer();
+    }
+
+    private void update(Chess game, int count) {
+        ply = count;
+        timeWhite = clock(game.getTimeWhite());
+        timeBlack = clock(game.getTimeBlack());
+        blackToMove = !game.isWhiteTurn();
+    }
+
+    private void ensureCapacity(int size) {
+        if (scratch.capacity() < size) {
+            scratch = ByteBuffer.allocate(size);
+        }
+    }
+
+    private static void readBoard(Chess game, byte[] squares) {
+        Arrays.fill(squares, (byte) 0);
+        for (int piece = 0; piece < 12; piece++) {
+            for (long bits = game.pieces(piece); bits != 0; bits &= bits - 1) {
+                squares[Long.numberOfTrailingZeros(bits)] = (byte) (piece + 1);
+            }
+        }
+    }
+
+    private static int clock(long millis) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, millis));
+    }
+}
@@ -0,0 +1,47 @@
+package chess.metrics;
+
+/*
+ * Timing hooks around the library's hot paths. Off unless the JVM runs with -Dchess.instrumentation=true;
+ * ENABLED is a constant, so when it is off the JIT folds start() and end() away entirely. When on, every
+ * operation is a chess.Operation Flight Recorder event, begun in start() and committed in end() while a
+ * recording enables it, and its time is passed to the sink, if one is set.
+ */
+public final class Instrumentation {
+    public static final boolean ENABLED = Boolean.getBoolean("chess.instrumentation");
+
+    private static volatile MetricsSink sink;
+
+    private Instrumentation() {
+    }
+
+    public static void setSink(MetricsSink metricsSink) {
+        sink = metricsSink;
+    }
+
+    public static MetricsSink getSink() {
+        return sink;
+    }
+
+    // null when instrumentation is off
+    public static OperationEvent start(Operation operation) {
+        if (!ENABLED) {
+            return null;
+        }
+        OperationEvent event = new OperationEvent(operation);
+        event.begin();
+        return event;
+    }
+
+    public static void end(OperationEvent event) {
+        if (ENABLED) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.commit();
+            }
+            MetricsSink current = sink;
+            if (current != null) {
+                current.record(event.type, System.nanoTime() - event.startNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package chess.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/*
+ * Log-linear histogram in the HDR style: each power of two is split into 2^SUB_BITS linear buckets, so a
+ * recorded value is known to within about 3% whatever its magnitude, in a fixed 15KB of counters.
+ * Recording is lock-free and never allocates.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BITS) * SUB_BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+        counts.getAndIncrement(index(clamped));
+        max.accumulate(clamped);
+    }
+
+    public long getCount() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    // the upper bound of the bucket holding the given percentile, 0 when nothing was recorded
+    public long getValueAtPercentile(double percentile) {
+        long total = getCount();
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target && total > 0) {
+                return Math.min(highestValue(i), getMax());
+            }
+        }
+        return 0;
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        max.reset();
+    }
+
+    // values below SUB_BUCKETS map to themselves, larger ones to their top SUB_BITS + 1 bits
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift & (SUB_BUCKETS - 1));
+    }
+
+    static long highestValue(int index) {
+        int bucket = index / SUB_BUCKETS;
+        if (bucket == 0) {
+            return index;
+        }
+        long lowest = (long) (SUB_BUCKETS | index % SUB_BUCKETS) << (bucket - 1);
+        return lowest + (1L << (bucket - 1)) - 1;
+    }
+}
@@ -0,0 +1,59 @@
+package chess.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// the built-in sink: call counts, total time and a latency histogram per operation
+public class Metrics implements MetricsSink {
+    private final LongAdder[] counts = new LongAdder[Operation.values().length];
+    private final LongAdder[] totalNanos = new LongAdder[Operation.values().length];
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+
+    public Metrics() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+            totalNanos[i] = new LongAdder();
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void record(Operation operation, long nanos) {
+        int i = operation.ordinal();
+        counts[i].increment();
+        totalNanos[i].add(nanos);
+        histograms[i].record(nanos);
+    }
+
+    public long getCount(Operation operation) {
+        return counts[operation.ordinal()].sum();
+    }
+
+    public long getTotalNanos(Operation operation) {
+        return totalNanos[operation.ordinal()].sum();
+    }
+
+    public LatencyHistogram getHistogram(Operation operation) {
+        return histograms[operation.ordinal()];
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i].reset();
+            totalNanos[i].reset();
+            histograms[i].reset();
+        }
+    }
+
+    // one line per operation with calls, mean and percentiles in nanoseconds
+    public String report() {
+        StringBuilder out = new StringBuilder();
+        for (Operation operation : Operation.values()) {
+            long count = getCount(operation);
+            LatencyHistogram histogram = getHistogram(operation);
+            out.append(String.format("%-16s %12d calls %10d mean %10d p50 %10d p99 %10d max%n", operation, count,
+                    count == 0 ? 0 : getTotalNanos(operation) / count, histogram.getValueAtPercentile(50),
+                    histogram.getValueAtPercentile(99), histogram.getMax()));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,7 @@
+package chess.metrics;
+
+// receives every timed operation while instrumentation is on; called concurrently from game threads
+@FunctionalInterface
+public interface MetricsSink {
+    void record(Operation operation, long nanos);
+}
@@ -0,0 +1,15 @@
+package chess.metrics;
+
+public enum Operation {
+    // isValidAction, answered from the legal move cache
+    VALIDATION,
+    // building the legal move and attack cache of a position not seen recently
+    MOVE_GENERATION,
+    // checkers and pinned pieces of a position, computed once per position on first use
+    CHECK_DETECTION,
+    MOVE,
+    // getGameState: legal move count, check, clocks and draw rules
+    GAME_STATE,
+    // board and move strings and binary game records
+    SERIALIZATION
+}
@@ -0,0 +1,28 @@
+package chess.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// one timed call, from Instrumentation.start to Instrumentation.end; JFR takes the duration from begin and commit
+@Name("chess.Operation")
+@Label("Chess Operation")
+@Category("Chess")
+@Description("A validation, move generation, check detection, move, game state check or serialization call")
+@StackTrace(false)
+public final class OperationEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    final String operation;
+
+    // for the sink only; JFR keeps its own timestamps and skips transient fields
+    final transient Operation type;
+    final transient long startNanos;
+
+    OperationEvent(Operation type) {
+        this.type = type;
+        this.operation = type.name();
+        this.startNanos = System.nanoTime();
+    }
+}
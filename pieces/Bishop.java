@@ -1,8 +0,0 @@
-package chess.pieces;
-
-public class Bishop extends Piece {
-
-    public Bishop(boolean isWhite) {
-        super(isWhite);
-    }
-}
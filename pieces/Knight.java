@@ -1,8 +0,0 @@
-package chess.pieces;
-
-public class Knight extends Piece {
-
-    public Knight(boolean isWhite) {
-        super(isWhite);
-    }
-}
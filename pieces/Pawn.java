@@ -1,8 +0,0 @@
-package chess.pieces;
-
-public class Pawn extends Piece {
-
-    public Pawn(boolean isWhite) {
-        super(isWhite);
-    }
-}
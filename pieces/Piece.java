@@ -1,13 +0,0 @@
-package chess.pieces;
-
-public abstract class Piece {
-    protected boolean isWhite;
-
-    public Piece(boolean isWhite) {
-        this.isWhite = isWhite;
-    }
-
-    public boolean isWhite() {
-        return isWhite;
-    }
-}
@@ -1,8 +0,0 @@
-package chess.pieces;
-
-public class Queen extends Piece {
-
-    public Queen(boolean isWhite) {
-        super(isWhite);
-    }
-}
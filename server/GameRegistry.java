@@ -0,0 +1,124 @@
+package chess.server;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import chess.Chess;
+import chess.TimeControl;
+import chess.io.GameJournal;
+
+public class GameRegistry {
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final Executor executor;
+    private final int queueCapacity;
+    private final TimerWheel timers;
+    private final Consumer<GameSession> flagListener;
+    private final GameJournal journal;
+
+    public GameRegistry() {
+        this(ForkJoinPool.commonPool(), 64);
+    }
+
+    // pass Executors.newVirtualThreadPerTaskExecutor() on JDKs that have virtual threads
+    public GameRegistry(Executor executor, int queueCapacity) {
+        this(executor, queueCapacity, null, null);
+    }
+
+    // flagListener is called from the game's own queue when the side to move runs out of time;
+    // the caller drives timers.advance() once per tick
+    public GameRegistry(Executor executor, int queueCapacity, TimerWheel timers,
+            Consumer<GameSession> flagListener) {
+        this(executor, queueCapacity, timers, flagListener, null);
+    }
+
+    // starts, moves submitted through submitMove and removals are written to the journal; open it with a
+    // failure listener to hear when that stops working, submitMove results do not fail for it
+    public GameRegistry(Executor executor, int queueCapacity, TimerWheel timers,
+            Consumer<GameSession> flagListener, GameJournal journal) {
+        this.executor = executor;
+        this.queueCapacity = queueCapacity;
+        this.timers = timers;
+        this.flagListener = flagListener;
+        this.journal = journal;
+    }
+
+    public GameSession create(int timeInSeconds) {
+        return register(new Chess(timeInSeconds));
+    }
+
+    public GameSession create(TimeControl timeControl) {
+        return register(new Chess(timeControl));
+    }
+
+    // game may already have moves, they are journaled with its start
+    public GameSession register(Chess game) {
+        // forked while the caller still owns the game, so the journal reads its moves while the session plays on
+        Chess start = journal != null && game.getMoveCount() > 0 ? game.fork() : game;
+        GameSession session = add(nextId.getAndIncrement(), game);
+        // logged after the session is visible, so a concurrent snapshot has the game or the start follows it
+        if (journal != null) {
+            journal.logStart(session.getId(), start);
+        }
+        return session;
+    }
+
+    // puts recovered games back under their old ids, e.g. restore(GameJournal.recover(directory))
+    public void restore(Map<Long, Chess> games) {
+        for (Map.Entry<Long, Chess> game : games.entrySet()) {
+            add(game.getKey(), game.getValue());
+            nextId.accumulateAndGet(game.getKey() + 1, Math::max);
+        }
+    }
+
+    // lets the journal drop everything up to now; games keep running while it is written
+    public void snapshot() throws IOException {
+        if (journal == null) {
+            throw new IllegalStateException("Registry has no journal");
+        }
+        journal.snapshot(() -> {
+            Map<Long, CompletableFuture<Chess>> forks = new HashMap<>();
+            for (GameSession session : sessions.values()) {
+                forks.put(session.getId(), session.forkGame());
+            }
+            Map<Long, Chess> games = new HashMap<>();
+            for (Map.Entry<Long, CompletableFuture<Chess>> fork : forks.entrySet()) {
+                games.put(fork.getKey(), fork.getValue().join());
+            }
+            return games;
+        });
+    }
+
+    public GameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    public GameSession remove(long id) {
+        GameSession session = sessions.remove(id);
+        if (session != null) {
+            session.close();
+            if (journal != null) {
+                journal.logEnd(id);
+            }
+        }
+        return session;
+    }
+
+    private GameSession add(long id, Chess game) {
+        GameSession session = new GameSession(id, game, executor, queueCapacity, timers, flagListener, journal);
+        sessions.put(id, session);
+        session.startClock();
+        return session;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+}
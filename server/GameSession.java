@@ -0,0 +1,199 @@
+package chess.server;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import chess.Chess;
+import chess.GameState;
+import chess.io.GameJournal;
+
+// every action on a session runs on the executor one at a time, so Chess itself needs no locking
+public class GameSession {
+    private static final int BATCH_SIZE = 32;
+
+    private final long id;
+    private final Chess game;
+    private final Executor executor;
+    private final int capacity;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final TimerWheel timers;
+    private final Consumer<GameSession> flagListener;
+    private final GameJournal journal;
+    private final SpectatorFeed spectators = new SpectatorFeed();
+    // only touched from inside queued actions
+    private TimerWheel.Timeout flagTimeout;
+
+    GameSession(long id, Chess game, Executor executor, int capacity, TimerWheel timers,
+            Consumer<GameSession> flagListener, GameJournal journal) {
+        this.id = id;
+        this.game = game;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.timers = timers;
+        this.flagListener = flagListener;
+        this.journal = journal;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /*
+     * The move is live, and sent to spectators, as soon as it is made. With a journal the result completes
+     * once the journal has settled the move, but always with whether the move was made: a move that could
+     * not be made durable has still been played, so that is reported through the journal's failure listener
+     * rather than as a failed result.
+     */
+    public CompletableFuture<Boolean> submitMove(int fromRow, int fromColumn, int toRow, int toColumn) {
+        return submit(chess -> {
+            if (!chess.isValidAction(fromRow, fromColumn, toRow, toColumn)) {
+                return CompletableFuture.completedFuture(false);
+            }
+            chess.move(fromRow, fromColumn, toRow, toColumn);
+            scheduleFlag();
+            spectators.publish(chess);
+            if (journal == null) {
+                return CompletableFuture.completedFuture(true);
+            }
+            int ply = chess.getMoveCount() - 1;
+            return journal.logMove(id, ply, chess.getMove(ply), chess.getMoveTime(ply)).handle((done, e) -> true);
+        }).thenCompose(Function.identity());
+    }
+
+    // fails with RejectedExecutionException instead of queueing when capacity actions are already waiting
+    public <T> CompletableFuture<T> submit(Function<Chess, T> action) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        if (pending.incrementAndGet() > capacity) {
+            pending.decrementAndGet();
+            result.completeExceptionally(
+                    new RejectedExecutionException("Game " + id + " has too many pending actions"));
+            return result;
+        }
+        enqueue(() -> {
+            try {
+                result.complete(action.apply(game));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    // spectator gets a snapshot, then a delta frame for every move made through submitMove
+    public CompletableFuture<Void> watch(Consumer<ByteBuffer> spectator) {
+        return submit(chess -> {
+            spectators.subscribe(spectator, chess);
+            return null;
+        });
+    }
+
+    public void unwatch(Consumer<ByteBuffer> spectator) {
+        spectators.unsubscribe(spectator);
+    }
+
+    public CompletableFuture<ByteBuffer> resync() {
+        return submit(spectators::snapshot);
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    void startClock() {
+        if (timers != null) {
+            pending.incrementAndGet();
+            enqueue(this::scheduleFlag);
+        }
+    }
+
+    // a private copy for snapshots, taken between actions and exempt from the capacity limit
+    CompletableFuture<Chess> forkGame() {
+        CompletableFuture<Chess> result = new CompletableFuture<>();
+        pending.incrementAndGet();
+        enqueue(() -> result.complete(game.fork()));
+        return result;
+    }
+
+    void close() {
+        if (timers != null) {
+            pending.incrementAndGet();
+            enqueue(() -> {
+                if (flagTimeout != null) {
+                    flagTimeout.cancel();
+                }
+            });
+        }
+    }
+
+    private void scheduleFlag() {
+        if (timers == null) {
+            return;
+        }
+        if (flagTimeout != null) {
+            flagTimeout.cancel();
+            flagTimeout = null;
+        }
+        if (game.getGameState() == GameState.ONGOING) {
+            // flag checks bypass the capacity limit, a full queue must not swallow a time loss
+            flagTimeout = timers.schedule(game.getRemainingNanos(), () -> {
+                pending.incrementAndGet();
+                enqueue(this::checkFlag);
+            });
+        }
+    }
+
+    private void checkFlag() {
+        if (game.getGameState() == GameState.FLAG) {
+            flagTimeout = null;
+            if (flagListener != null) {
+                flagListener.accept(this);
+            }
+        } else {
+            scheduleFlag();
+        }
+    }
+
+    // callers have already counted the action in pending
+    private void enqueue(Runnable action) {
+        queue.offer(action);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    // runs a bounded batch and hands the thread back so one busy game cannot starve the others; an action
+    // that throws goes to the thread's uncaught exception handler and the queue carries on after it
+    private void drain() {
+        try {
+            Runnable action;
+            for (int i = 0; i < BATCH_SIZE && (action = queue.poll()) != null; i++) {
+                pending.decrementAndGet();
+                try {
+                    action.run();
+                } catch (Throwable t) {
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, t);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+        }
+        if (!queue.isEmpty()) {
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package chess.server;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import chess.Chess;
+import chess.io.StateSyncEncoder;
+
+/*
+ * Fans a game's state frames out to its spectators. Each frame is encoded once and every spectator gets
+ * a view of the same read-only bytes. publish, subscribe and snapshot run on the game's own queue;
+ * spectators are called there too, so they should only hand the frame on, e.g. to a socket's write queue.
+ * A spectator that throws is dropped and its exception goes to the thread's uncaught exception handler;
+ * the others still get the frame and publish itself never throws.
+ */
+public class SpectatorFeed {
+    private final StateSyncEncoder encoder = new StateSyncEncoder();
+    private final List<Consumer<ByteBuffer>> spectators = new CopyOnWriteArrayList<>();
+
+    // nothing is encoded while nobody watches; the next subscriber brings the state up to date
+    public void publish(Chess game) {
+        if (spectators.isEmpty()) {
+            return;
+        }
+        ByteBuffer frame = encoder.encode(game);
+        for (Consumer<ByteBuffer> spectator : spectators) {
+            try {
+                spectator.accept(frame.duplicate());
+            } catch (RuntimeException e) {
+                spectators.remove(spectator);
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+            }
+        }
+    }
+
+    // a new spectator starts from a snapshot and gets every delta after it; if it throws on the snapshot it
+    // is not added and the exception goes to the caller
+    public void subscribe(Consumer<ByteBuffer> spectator, Chess game) {
+        spectator.accept(snapshot(game));
+        spectators.add(spectator);
+    }
+
+    // safe from any thread
+    public void unsubscribe(Consumer<ByteBuffer> spectator) {
+        spectators.remove(spectator);
+    }
+
+    // for a spectator that saw a gap in the sequence numbers
+    public ByteBuffer snapshot(Chess game) {
+        if (spectators.isEmpty()) {
+            encoder.encode(game);
+        }
+        return encoder.snapshot();
+    }
+
+    public int getSpectatorCount() {
+        return spectators.size();
+    }
+}
@@ -0,0 +1,151 @@
+package chess.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.TimeSource;
+
+/*
+ * Hierarchical timer wheel: LEVELS wheels of 64 slots, each slot of level n spanning 64^n ticks.
+ * A timeout sits in the lowest level whose span covers its distance from now and moves down a level
+ * whenever the slot above it comes round, so schedule and cancel are O(1) and advance only touches
+ * timeouts that are due or cascading.
+ */
+public class TimerWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+
+    private final TimeSource timeSource;
+    private final long tickNanos;
+    private final long startNanos;
+    private final Timeout[][] wheels = new Timeout[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    public TimerWheel(TimeSource timeSource, long tickNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        this.timeSource = timeSource;
+        this.tickNanos = tickNanos;
+        this.startNanos = timeSource.nanoTime();
+        for (Timeout[] wheel : wheels) {
+            for (int i = 0; i < SLOTS; i++) {
+                wheel[i] = new Timeout(this, 0, null);
+                wheel[i].prev = wheel[i];
+                wheel[i].next = wheel[i];
+            }
+        }
+    }
+
+    public Timeout schedule(long delayNanos, Runnable task) {
+        long now = timeSource.nanoTime() - startNanos;
+        // round up so a timeout never fires before its delay has passed
+        long deadline = (now + Math.max(0, delayNanos) + tickNanos - 1) / tickNanos;
+        synchronized (this) {
+            Timeout timeout = new Timeout(this, Math.max(deadline, currentTick + 1), task);
+            insert(timeout);
+            size++;
+            return timeout;
+        }
+    }
+
+    // fires everything that is due by now; callers drive this once per tick from a single thread
+    public int advance() {
+        long targetTick = (timeSource.nanoTime() - startNanos) / tickNanos;
+        List<Timeout> expired = new ArrayList<>();
+        synchronized (this) {
+            while (currentTick < targetTick) {
+                currentTick++;
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                        cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+                    }
+                }
+                Timeout head = wheels[0][(int) currentTick & (SLOTS - 1)];
+                while (head.next != head) {
+                    Timeout timeout = head.next;
+                    unlink(timeout);
+                    size--;
+                    expired.add(timeout);
+                }
+            }
+        }
+        for (Timeout timeout : expired) {
+            timeout.task.run();
+        }
+        return expired.size();
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    private void cascade(int level, int slot) {
+        Timeout head = wheels[level][slot];
+        while (head.next != head) {
+            Timeout timeout = head.next;
+            unlink(timeout);
+            insert(timeout);
+        }
+    }
+
+    private void insert(Timeout timeout) {
+        long deadline = timeout.deadline;
+        long distance = deadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && distance >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot;
+        if (distance >= 1L << (SLOT_BITS * LEVELS)) {
+            // beyond the wheel's range: park in the top slot that comes round last and reinsert from there
+            slot = (int) ((currentTick >>> (SLOT_BITS * level)) - 1) & (SLOTS - 1);
+        } else {
+            slot = (int) (deadline >>> (SLOT_BITS * level)) & (SLOTS - 1);
+        }
+        Timeout head = wheels[level][slot];
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+    }
+
+    private static void unlink(Timeout timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+    }
+
+    public static final class Timeout {
+        private final TimerWheel wheel;
+        private final long deadline;
+        private final Runnable task;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimerWheel wheel, long deadline, Runnable task) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        // returns false if the timeout already fired or was cancelled
+        public boolean cancel() {
+            synchronized (wheel) {
+                if (next == null) {
+                    return false;
+                }
+                unlink(this);
+                wheel.size--;
+                return true;
+            }
+        }
+    }
+}
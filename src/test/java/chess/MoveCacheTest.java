@@ -0,0 +1,56 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MoveCacheTest {
+    @Test
+    void validationMatchesTheMoveGeneratorAcrossForks() {
+        Random random = new Random(12);
+        int[] moves = new int[256];
+        Chess game = Chess.fromFen(Perft.KIWIPETE_FEN);
+        for (int ply = 0; ply < 200; ply++) {
+            Chess fork = game.fork();
+            assertMatches(game);
+            int count = game.generateLegalMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            game.move(moves[random.nextInt(count)], 0);
+            // the fork still answers for the position it was taken in
+            assertMatches(fork);
+            assertMatches(game);
+        }
+    }
+
+    @Test
+    void collidingPositionsReplaceEachOther() {
+        MoveCache cache = new MoveCache(1);
+        int[] moves = new int[256];
+        Position start = Position.startPosition();
+        Position kiwipete = Position.fromFen(Perft.KIWIPETE_FEN);
+        MoveCache.Entry entry = cache.get(start, moves);
+        assertEquals(20, entry.getLegalMoveCount());
+        assertSame(entry, cache.get(start, moves));
+        // one slot, so the entry is refilled in place for the other position and back
+        assertSame(entry, cache.get(kiwipete, moves));
+        assertEquals(48, entry.getLegalMoveCount());
+        assertEquals(20, cache.get(start, moves).getLegalMoveCount());
+    }
+
+    private static void assertMatches(Chess game) {
+        Position position = game.copyPosition();
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                boolean expected = from != to && position.isLegalMove(from, to);
+                assertEquals(expected, game.isValidAction(from / 8, from % 8, to / 8, to % 8), position.toFen());
+            }
+            assertEquals(position.isAttacked(from, Piece.BLACK), game.fieldIsThreatened(from / 8, from % 8, true));
+            assertEquals(position.isAttacked(from, Piece.WHITE), game.fieldIsThreatened(from / 8, from % 8, false));
+        }
+    }
+}
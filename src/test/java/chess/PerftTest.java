@@ -0,0 +1,47 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+class PerftTest {
+    // depths 1 to 4 of the five standard positions
+    private static final String[] FENS = { Perft.START_FEN, Perft.KIWIPETE_FEN, Perft.ENDGAME_FEN,
+            Perft.PROMOTION_FEN, Perft.CASTLING_FEN };
+    private static final long[][] NODES = {
+            { 20, 400, 8902, 197281 },
+            { 48, 2039, 97862, 4085603 },
+            { 14, 191, 2812, 43238 },
+            { 6, 264, 9467, 422333 },
+            { 44, 1486, 62379, 2103487 } };
+
+    @Test
+    void countsMatchTheReferenceValues() {
+        Perft perft = new Perft();
+        for (int i = 0; i < FENS.length; i++) {
+            for (int depth = 1; depth <= NODES[i].length; depth++) {
+                assertEquals(NODES[i][depth - 1], perft.perft(Position.fromFen(FENS[i]), depth),
+                        FENS[i] + " depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    void hashedParallelCountsMatchTheSerialOnes() {
+        Perft perft = new Perft(1 << 16, ForkJoinPool.commonPool());
+        for (int i = 0; i < FENS.length; i++) {
+            assertEquals(NODES[i][3], perft.perft(Position.fromFen(FENS[i]), 4), FENS[i]);
+        }
+    }
+
+    @Test
+    void positionIsRestoredAfterCounting() {
+        Position position = Position.fromFen(Perft.KIWIPETE_FEN);
+        long hash = position.getHash();
+        new Perft().perft(position, 3);
+        assertEquals(Perft.KIWIPETE_FEN, position.toFen());
+        assertEquals(hash, position.getHash());
+    }
+}
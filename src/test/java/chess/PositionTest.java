@@ -0,0 +1,96 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PositionTest {
+    private static final String[] FENS = { Position.START_FEN, Perft.KIWIPETE_FEN, Perft.ENDGAME_FEN,
+            Perft.PROMOTION_FEN, Perft.CASTLING_FEN, "4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 3" };
+
+    @Test
+    void fenSurvivesARoundTrip() {
+        for (String fen : FENS) {
+            assertEquals(fen, Position.fromFen(fen).toFen());
+        }
+    }
+
+    @Test
+    void fenOfRandomGamesRestoresTheSamePosition() {
+        Random random = new Random(1);
+        int[] moves = new int[256];
+        for (int game = 0; game < 50; game++) {
+            Position position = Position.startPosition();
+            for (int ply = 0; ply < 120; ply++) {
+                int count = position.generateLegalMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                position.makeMove(moves[random.nextInt(count)]);
+                Position copy = Position.fromFen(position.toFen());
+                assertEquals(position.toFen(), copy.toFen());
+                assertEquals(position.getHash(), copy.getHash(), position.toFen());
+                assertEquals(position.generateLegalMoves(moves), copy.generateLegalMoves(new int[256]));
+            }
+        }
+    }
+
+    @Test
+    void unmakeRestoresFenAndHash() {
+        Random random = new Random(2);
+        int[] moves = new int[256];
+        for (String fen : FENS) {
+            Position position = Position.fromFen(fen);
+            String[] fens = new String[80];
+            long[] hashes = new long[80];
+            int plies = 0;
+            for (; plies < fens.length; plies++) {
+                int count = position.generateLegalMoves(moves);
+                if (count == 0) {
+                    break;
+                }
+                fens[plies] = position.toFen();
+                hashes[plies] = position.getHash();
+                position.makeMove(moves[random.nextInt(count)]);
+            }
+            while (plies-- > 0) {
+                position.unmakeMove();
+                assertEquals(fens[plies], position.toFen());
+                assertEquals(hashes[plies], position.getHash());
+            }
+        }
+    }
+
+    @Test
+    void forksPlayOnWithoutDisturbingEachOther() {
+        Random random = new Random(4);
+        int[] moves = new int[256];
+        Position original = Position.fromFen(Perft.KIWIPETE_FEN);
+        for (int ply = 0; ply < 10; ply++) {
+            original.makeMove(moves[random.nextInt(original.generateLegalMoves(moves))]);
+        }
+        String fen = original.toFen();
+        long hash = original.getHash();
+        Position fork = original.fork();
+        for (Position position : new Position[] { fork, original }) {
+            for (int ply = 0; ply < 6; ply++) {
+                position.makeMove(moves[random.nextInt(position.generateLegalMoves(moves))]);
+            }
+        }
+        for (Position position : new Position[] { original, fork }) {
+            for (int ply = 0; ply < 6; ply++) {
+                position.unmakeMove();
+            }
+            assertEquals(fen, position.toFen());
+            assertEquals(hash, position.getHash());
+            assertEquals(10, position.getPly());
+        }
+        for (int ply = 0; ply < 10; ply++) {
+            fork.unmakeMove();
+        }
+        assertEquals(Perft.KIWIPETE_FEN, fork.toFen());
+        assertEquals(fen, original.toFen());
+    }
+}
@@ -0,0 +1,39 @@
+package chess;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class SanParserTest {
+    @Test
+    void everyLegalMoveParsesBackFromItsNotation() {
+        Random random = new Random(3);
+        int[] moves = new int[256];
+        for (String fen : new String[] { Position.START_FEN, Perft.KIWIPETE_FEN, Perft.PROMOTION_FEN }) {
+            for (int game = 0; game < 20; game++) {
+                Chess chess = Chess.fromFen(fen);
+                for (int ply = 0; ply < 100; ply++) {
+                    int count = chess.generateLegalMoves(moves);
+                    if (count == 0) {
+                        break;
+                    }
+                    for (int i = 0; i < count; i++) {
+                        String san = chess.generateAlgebraicNotation(moves[i]);
+                        assertEquals(moves[i], chess.parseMove(san), san + " in " + chess.toFen());
+                    }
+                    chess.move(moves[random.nextInt(count)], 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rejectsMovesThatAreNotLegal() {
+        Chess chess = new Chess();
+        for (String san : new String[] { "e5", "Ke2", "O-O", "Nc4", "exd5", "e8=Q", "", "Zz9" }) {
+            assertEquals(Move.NONE, chess.parseMove(san), san);
+        }
+    }
+}
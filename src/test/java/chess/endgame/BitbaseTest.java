@@ -0,0 +1,57 @@
+package chess.endgame;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.Chess;
+import chess.Position;
+
+class BitbaseTest {
+    @TempDir
+    static Path directory;
+    private static Bitbases bitbases;
+
+    @BeforeAll
+    static void generate() throws IOException {
+        BitbaseGenerator generator = new BitbaseGenerator();
+        generator.generate("KPK", directory);
+        generator.generate("KRK", directory);
+        bitbases = Bitbases.open(directory);
+    }
+
+    @Test
+    void knownPositionsHaveTheirTheoreticalResult() {
+        assertEquals(BitbaseResult.WIN, probe("8/8/8/4k3/8/8/8/R3K3 w - - 0 1"));
+        assertEquals(BitbaseResult.LOSS, probe("8/8/8/4k3/8/8/8/R3K3 b - - 0 1"));
+        // the rook hangs with black to move
+        assertEquals(BitbaseResult.DRAW, probe("8/8/8/8/8/8/1kR5/7K b - - 0 1"));
+        // the king on the sixth rank in front of its pawn wins whoever moves, the rook pawn never does
+        assertEquals(BitbaseResult.WIN, probe("4k3/8/4K3/4P3/8/8/8/8 w - - 0 1"));
+        assertEquals(BitbaseResult.LOSS, probe("4k3/8/4K3/4P3/8/8/8/8 b - - 0 1"));
+        assertEquals(BitbaseResult.DRAW, probe("7k/8/7K/7P/8/8/8/8 w - - 0 1"));
+        assertEquals(BitbaseResult.DRAW, probe("4k3/4P3/4K3/8/8/8/8/8 b - - 0 1"));
+        // the same pawn endings with colours reversed
+        assertEquals(BitbaseResult.WIN, probe("8/8/8/8/4p3/4k3/8/4K3 b - - 0 1"));
+        assertEquals(BitbaseResult.LOSS, probe("8/8/8/8/4p3/4k3/8/4K3 w - - 0 1"));
+        assertEquals(BitbaseResult.DRAW, probe("8/8/8/8/8/4k3/4p3/4K3 w - - 0 1"));
+    }
+
+    @Test
+    void chessAndPositionProbesAgree() {
+        String fen = "8/8/8/4k3/8/8/8/R3K3 w - - 0 1";
+        assertEquals(bitbases.probe(Position.fromFen(fen)), bitbases.probe(Chess.fromFen(fen)));
+        assertEquals(BitbaseResult.UNKNOWN, probe("4k3/8/8/8/8/8/8/R3K3 w Q - 0 1"));
+        assertEquals(BitbaseResult.UNKNOWN, probe("4k3/8/8/8/8/8/8/RQ2K3 w - - 0 1"));
+        assertEquals(BitbaseResult.DRAW, probe("4k3/8/8/8/8/8/8/4K3 w - - 0 1"));
+    }
+
+    private static BitbaseResult probe(String fen) {
+        return bitbases.probe(Position.fromFen(fen));
+    }
+}
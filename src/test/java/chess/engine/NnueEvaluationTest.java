@@ -0,0 +1,122 @@
+package chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.Perft;
+import chess.Piece;
+import chess.Position;
+
+class NnueEvaluationTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void incrementalUpdatesMatchAFreshEvaluation() {
+        // 37 leaves a scalar tail behind every vector width
+        for (int hidden : new int[] { 37, 256 }) {
+            Network network = randomNetwork(hidden, new Random(hidden));
+            Random random = new Random(7);
+            int[] moves = new int[256];
+            for (String fen : new String[] { Position.START_FEN, Perft.KIWIPETE_FEN, Perft.PROMOTION_FEN }) {
+                Position position = Position.fromFen(fen);
+                NnueEvaluation incremental = new NnueEvaluation(network);
+                NnueEvaluation fresh = new NnueEvaluation(network);
+                incremental.reset(position);
+                for (int ply = 0; ply < 150; ply++) {
+                    int count = position.generateLegalMoves(moves);
+                    if (count == 0) {
+                        break;
+                    }
+                    int move = moves[random.nextInt(count)];
+                    incremental.makeMove(position, move);
+                    position.makeMove(move);
+                    fresh.reset(position);
+                    assertEquals(fresh.evaluate(position), incremental.evaluate(position), position.toFen());
+                }
+            }
+        }
+    }
+
+    @Test
+    void aTinyNetworkEvaluatesToItsHandComputedScore() {
+        short[] featureWeights = new short[Network.FEATURES * 2];
+        for (int square = 0; square < 64; square++) {
+            featureWeights[(Piece.PAWN * 64 + square) * 2] = 10;
+            featureWeights[(Piece.KNIGHT * 64 + square) * 2 + 1] = 150;
+            featureWeights[((6 + Piece.QUEEN) * 64 + square) * 2 + 1] = 100;
+        }
+        short[] outputWeights = { 64, 32, -64, 16 };
+        Network network = new Network(2, featureWeights, new short[] { 5, 0 }, outputWeights,
+                Network.QA * Network.QB / 2);
+        // both sides see 5 + 8 * 10 = 85 and min(2 * 150 + 100, 255) = 255, so the dot product is
+        // 85 * 64 + 255 * 32 - 85 * 64 + 255 * 16 = 12240 and (12240 + 8160) * 400 / (255 * 64) = 500
+        Position position = Position.startPosition();
+        NnueEvaluation evaluation = new NnueEvaluation(network);
+        evaluation.reset(position);
+        assertEquals(500, evaluation.evaluate(position));
+    }
+
+    @Test
+    void vectorKernelsMatchTheScalarLoops() {
+        assumeTrue(Network.VECTORIZED, "run with --add-modules jdk.incubator.vector");
+        Random random = new Random(8);
+        for (int hidden : new int[] { 1, 15, 37, 256 }) {
+            Network network = randomNetwork(hidden, random);
+            short[] vector = new short[hidden];
+            short[] scalar = new short[hidden];
+            for (int step = 0; step < 2000; step++) {
+                int feature = random.nextInt(Network.FEATURES);
+                if (random.nextBoolean()) {
+                    VectorKernels.add(vector, network.featureWeights[feature], hidden);
+                    network.addScalar(scalar, feature);
+                } else {
+                    VectorKernels.subtract(vector, network.featureWeights[feature], hidden);
+                    network.subtractScalar(scalar, feature);
+                }
+                assertArrayEquals(scalar, vector);
+                assertEquals(network.dot(scalar, 0), VectorKernels.dot(vector, network.outputWeights, 0, hidden));
+                assertEquals(network.dot(scalar, hidden),
+                        VectorKernels.dot(vector, network.outputWeights, hidden, hidden));
+            }
+        }
+    }
+
+    @Test
+    void networksSurviveAWriteAndLoad() throws IOException {
+        Network network = randomNetwork(64, new Random(9));
+        Path file = directory.resolve("network.nnue");
+        network.write(file);
+        Network loaded = Network.load(file);
+        Position position = Position.fromFen(Perft.KIWIPETE_FEN);
+        NnueEvaluation expected = new NnueEvaluation(network);
+        NnueEvaluation actual = new NnueEvaluation(loaded);
+        expected.reset(position);
+        actual.reset(position);
+        assertEquals(expected.evaluate(position), actual.evaluate(position));
+    }
+
+    private static Network randomNetwork(int hidden, Random random) {
+        short[] featureWeights = new short[Network.FEATURES * hidden];
+        for (int i = 0; i < featureWeights.length; i++) {
+            featureWeights[i] = (short) (random.nextInt(129) - 64);
+        }
+        short[] featureBiases = new short[hidden];
+        for (int i = 0; i < hidden; i++) {
+            featureBiases[i] = (short) random.nextInt(128);
+        }
+        short[] outputWeights = new short[2 * hidden];
+        for (int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (short) (random.nextInt(129) - 64);
+        }
+        return new Network(hidden, featureWeights, featureBiases, outputWeights, random.nextInt(2001) - 1000);
+    }
+}
@@ -0,0 +1,44 @@
+package chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import chess.Move;
+import chess.Perft;
+import chess.Position;
+
+class ParallelSearchTest {
+    @Test
+    void helpersAgreeOnAMateAndLeaveThePositionAlone() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ParallelSearch search = new ParallelSearch(4, new TranspositionTable(4), executor);
+            Position position = Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+            SearchResult result = search.search(position, 5, 0, 0);
+            assertEquals(56, Move.to(result.getBestMove()));
+            assertTrue(result.isMate());
+            assertEquals("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1", position.toFen());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void theNodeLimitCountsAllThreads() {
+        ExecutorService executor = Executors.newFixedThreadPool(1);
+        try {
+            ParallelSearch search = new ParallelSearch(2, new TranspositionTable(4), executor);
+            SearchResult result = search.search(Position.fromFen(Perft.KIWIPETE_FEN), Search.MAX_PLY, 100_000, 0);
+            assertTrue(result.getBestMove() != Move.NONE);
+            // each thread may overshoot by one check interval before it sees the shared total
+            assertTrue(result.getNodes() < 100_000 + 2 * 2048, "nodes " + result.getNodes());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
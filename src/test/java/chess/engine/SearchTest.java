@@ -0,0 +1,42 @@
+package chess.engine;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import chess.Move;
+import chess.Position;
+
+class SearchTest {
+    @Test
+    void findsAMateInOne() {
+        Position position = Position.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        String fen = position.toFen();
+        SearchResult result = new Search().search(position, 4, 0, 0);
+        assertEquals(56, Move.to(result.getBestMove()));
+        assertTrue(result.isMate());
+        assertEquals(fen, position.toFen());
+    }
+
+    @Test
+    void stopsAtTheDeadlineOfItsTimeSource() {
+        AtomicLong now = new AtomicLong();
+        Search search = new Search(new TranspositionTable(1), Evaluator::evaluate, now::get);
+        // every completed iteration takes a second on this clock, so the fourth one runs out of time
+        search.setListener(result -> now.addAndGet(1_000_000_000L));
+        SearchResult result = search.search(Position.startPosition(), Search.MAX_PLY, 0, 2500);
+        assertEquals(3, result.getDepth());
+        assertEquals(3_000_000_000L, result.getElapsedNanos());
+        assertTrue(result.getBestMove() != Move.NONE);
+    }
+
+    @Test
+    void tableSizeIsAPowerOfTwoWithinTheLimit() {
+        assertEquals(1 << 16, new TranspositionTable(1).size());
+        assertEquals(1 << 17, new TranspositionTable(3).size());
+        assertEquals(1, new TranspositionTable(0).size());
+    }
+}
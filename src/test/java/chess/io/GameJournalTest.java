@@ -0,0 +1,209 @@
+package chess.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.Chess;
+import chess.Move;
+import chess.TimeControl;
+import chess.server.GameRegistry;
+import chess.server.GameSession;
+
+class GameJournalTest {
+    @TempDir
+    Path directory;
+
+    private final Random random = new Random(10);
+    private final int[] moves = new int[256];
+
+    @Test
+    void recoveryReplaysEverySegmentAfterTheSnapshot() throws IOException {
+        Map<Long, Chess> games = new HashMap<>();
+        try (GameJournal journal = GameJournal.open(directory)) {
+            for (long id = 1; id <= 20; id++) {
+                Chess game = new Chess(new TimeControl(300_000, 2000, 0));
+                games.put(id, game);
+                journal.logStart(id, game);
+            }
+            play(journal, games, 30);
+            journal.snapshot(() -> fork(games));
+            play(journal, games, 30);
+            for (long id = 1; id <= 5; id++) {
+                journal.logEnd(id).join();
+                games.remove(id);
+            }
+            journal.snapshot(() -> fork(games));
+            play(journal, games, 20).join();
+        }
+        assertEquals(1, count("snapshot-"));
+        assertEquals(1, count("journal-"));
+        assertSame(games, GameJournal.recover(directory));
+
+        // a reopened journal appends to a new segment after the ones it found
+        try (GameJournal journal = GameJournal.open(directory)) {
+            play(journal, games, 10).join();
+        }
+        assertEquals(2, count("journal-"));
+        assertSame(games, GameJournal.recover(directory));
+    }
+
+    @Test
+    void movesAlreadyInTheSnapshotAreSkipped() throws IOException {
+        Map<Long, Chess> games = new HashMap<>();
+        try (GameJournal journal = GameJournal.open(directory)) {
+            Chess game = new Chess();
+            games.put(7L, game);
+            journal.logStart(7, game);
+            play(journal, games, 10);
+            journal.snapshot(() -> fork(games));
+            // a record appended before the rotation can land in the new segment, replaying it twice is harmless
+            int ply = game.getMoveCount() - 1;
+            journal.logMove(7, ply, game.getMove(ply), game.getMoveTime(ply));
+            play(journal, games, 5).join();
+        }
+        assertSame(games, GameJournal.recover(directory));
+    }
+
+    @Test
+    void aTornTailEndsReplayAtTheLastWholeRecord() throws IOException {
+        Map<Long, Chess> games = new HashMap<>();
+        Path segment;
+        try (GameJournal journal = GameJournal.open(directory)) {
+            Chess game = new Chess();
+            games.put(1L, game);
+            journal.logStart(1, game);
+            play(journal, games, 12).join();
+            segment = directory.resolve("journal-1.log");
+        }
+        Chess expected = games.get(1L);
+        long size = Files.size(segment);
+        // a move record takes 8 + 9 + 14 bytes; cut into the last one, then garble the one before it
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 5);
+        }
+        Chess recovered = GameJournal.recover(directory).get(1L);
+        assertEquals(expected.getMoveCount() - 1, recovered.getMoveCount());
+
+        byte[] bytes = Files.readAllBytes(segment);
+        int lastWhole = bytes.length - (31 - 5);
+        bytes[lastWhole - 3] ^= 0x40;
+        Files.write(segment, bytes);
+        recovered = GameJournal.recover(directory).get(1L);
+        assertEquals(expected.getMoveCount() - 2, recovered.getMoveCount());
+        for (int ply = 0; ply < recovered.getMoveCount(); ply++) {
+            assertEquals(expected.getMove(ply), recovered.getMove(ply));
+        }
+    }
+
+    @Test
+    void gamesRegisteredMidwayRecoverWithTheirEarlierMoves() throws IOException {
+        Map<Long, Chess> games = new HashMap<>();
+        Chess game = new Chess(new TimeControl(300_000, 1000, 0));
+        games.put(1L, game);
+        play(null, games, 9);
+        try (GameJournal journal = GameJournal.open(directory)) {
+            GameSession session = new GameRegistry(Runnable::run, 8, null, null, journal).register(game);
+            assertEquals(1, session.getId());
+            int move = moves[random.nextInt(game.generateLegalMoves(moves))];
+            int from = Move.from(move);
+            int to = Move.to(move);
+            assertTrue(session.submitMove(from >>> 3, from & 7, to >>> 3, to & 7).join());
+        }
+        assertEquals(10, GameJournal.recover(directory).get(1L).getMoveCount());
+        assertSame(games, GameJournal.recover(directory));
+    }
+
+    @Test
+    void anIllegalMoveEndsItsGamesLog() throws IOException {
+        Chess game = new Chess();
+        Chess other = new Chess();
+        try (GameJournal journal = GameJournal.open(directory)) {
+            journal.logStart(1, game);
+            journal.logStart(2, other);
+            game.move(1, 4, 3, 4);
+            journal.logMove(1, 0, game.getMove(0), 0);
+            // a whole, checksummed record whose move is white's again although black is to move
+            journal.logMove(1, 1, game.getMove(0), 0);
+            game.move(6, 4, 4, 4);
+            journal.logMove(1, 1, game.getMove(1), 0);
+            other.move(1, 3, 3, 3);
+            journal.logMove(2, 0, other.getMove(0), 0).join();
+        }
+        Map<Long, Chess> recovered = GameJournal.recover(directory);
+        assertEquals(1, recovered.get(1L).getMoveCount());
+        assertEquals(game.getMove(0), recovered.get(1L).getMove(0));
+        assertEquals(1, recovered.get(2L).getMoveCount());
+    }
+
+    @Test
+    void appendsToAClosedJournalFailWithoutThrowing() throws IOException {
+        GameJournal journal = GameJournal.open(directory);
+        journal.close();
+        CompletableFuture<Void> result = journal.logMove(1, 0, 0, 0);
+        assertTrue(result.isCompletedExceptionally());
+        assertTrue(journal.logEnd(1).isCompletedExceptionally());
+    }
+
+    // plays plies random moves in every game, logging them unless journal is null, and returns the durability of the last one logged
+    private CompletableFuture<Void> play(GameJournal journal, Map<Long, Chess> games, int plies) {
+        CompletableFuture<Void> last = CompletableFuture.completedFuture(null);
+        for (int ply = 0; ply < plies; ply++) {
+            for (Map.Entry<Long, Chess> entry : games.entrySet()) {
+                Chess game = entry.getValue();
+                int count = game.generateLegalMoves(moves);
+                if (count == 0) {
+                    continue;
+                }
+                game.move(moves[random.nextInt(count)], random.nextInt(5000));
+                if (journal == null) {
+                    continue;
+                }
+                int index = game.getMoveCount() - 1;
+                last = journal.logMove(entry.getKey(), index, game.getMove(index), game.getMoveTime(index));
+            }
+        }
+        return last;
+    }
+
+    private static Map<Long, Chess> fork(Map<Long, Chess> games) {
+        Map<Long, Chess> forks = new HashMap<>();
+        games.forEach((id, game) -> forks.put(id, game.fork()));
+        return forks;
+    }
+
+    private long count(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).count();
+        }
+    }
+
+    private static void assertSame(Map<Long, Chess> expected, Map<Long, Chess> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<Long, Chess> entry : expected.entrySet()) {
+            Chess game = entry.getValue();
+            Chess recovered = actual.get(entry.getKey());
+            assertEquals(game.getMoveCount(), recovered.getMoveCount());
+            for (int ply = 0; ply < game.getMoveCount(); ply++) {
+                assertEquals(game.getMove(ply), recovered.getMove(ply));
+                assertEquals(game.getMoveTime(ply), recovered.getMoveTime(ply));
+            }
+            assertEquals(game.getTimeWhite(), recovered.getTimeWhite());
+            assertEquals(game.getTimeBlack(), recovered.getTimeBlack());
+            assertEquals(game.getTimeControl().getIncrementMillis(), recovered.getTimeControl().getIncrementMillis());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package chess.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import chess.Chess;
+import chess.Perft;
+import chess.TimeControl;
+import chess.TimeSource;
+
+class GameRecordTest {
+    @Test
+    void gamesAndClocksSurviveARoundTrip() throws IOException {
+        Random random = new Random(5);
+        List<Chess> written = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            TimeControl control = new TimeControl(random.nextInt(600_000), random.nextInt(5000), random.nextInt(3000));
+            Chess game = i % 4 == 0 ? Chess.fromFen(Perft.KIWIPETE_FEN, control, TimeSource.SYSTEM)
+                    : new Chess(control, TimeSource.SYSTEM);
+            play(game, random, random.nextInt(150));
+            written.add(game);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GameRecordWriter writer = new GameRecordWriter(bytes)) {
+            for (Chess game : written) {
+                writer.write(game);
+            }
+        }
+
+        AtomicLong now = new AtomicLong();
+        try (GameRecordReader reader = new GameRecordReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (Chess expected : written) {
+                Chess actual = reader.read(now::get);
+                assertEquals(expected.getStartFen(), actual.getStartFen());
+                assertEquals(expected.getInitialTime(), actual.getInitialTime());
+                assertEquals(expected.getTimeControl().getIncrementMillis(),
+                        actual.getTimeControl().getIncrementMillis());
+                assertEquals(expected.getTimeControl().getDelayMillis(), actual.getTimeControl().getDelayMillis());
+                assertEquals(expected.getMoveCount(), actual.getMoveCount());
+                for (int ply = 0; ply < expected.getMoveCount(); ply++) {
+                    assertEquals(expected.getMove(ply), actual.getMove(ply));
+                    assertEquals(expected.getMoveTime(ply), actual.getMoveTime(ply));
+                }
+                assertEquals(expected.getTimeWhite(), actual.getTimeWhite());
+                assertEquals(expected.getTimeBlack(), actual.getTimeBlack());
+                assertEquals(expected.toFen(), actual.toFen());
+            }
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    void readGamesRunOnTheGivenTimeSource() throws IOException {
+        Chess game = new Chess(new TimeControl(60_000, 0, 0));
+        game.move(1, 4, 3, 4);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GameRecordWriter writer = new GameRecordWriter(bytes)) {
+            writer.write(game);
+        }
+        AtomicLong now = new AtomicLong(1_000_000_000L);
+        Chess read = new GameRecordReader(new ByteArrayInputStream(bytes.toByteArray())).read(now::get);
+        long remaining = read.getRemainingNanos();
+        now.addAndGet(2_000_000_000L);
+        assertEquals(remaining - 2_000_000_000L, read.getRemainingNanos());
+    }
+
+    @Test
+    void illegalMovesAreRejected() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GameRecordWriter writer = new GameRecordWriter(bytes)) {
+            Chess game = new Chess(new TimeControl(0, 0, 0));
+            game.move(1, 4, 3, 4);
+            game.move(6, 4, 4, 4);
+            writer.write(game);
+        }
+        byte[] record = bytes.toByteArray();
+        // magic, three clock varints, FEN length and move count come before the moves, the second one is replaced
+        // by the first so black moves a white pawn
+        record[11] = record[9];
+        record[12] = record[10];
+        IOException e = assertThrows(IOException.class,
+                () -> new GameRecordReader(new ByteArrayInputStream(record)).read());
+        assertEquals("Illegal move at ply 1", e.getMessage());
+    }
+
+    @Test
+    void outOfRangeLengthsAreFormatErrors() {
+        // magic "CGR2", zero clocks, then a FEN length far beyond any FEN
+        byte[] fen = { 'C', 'G', 'R', '2', 0, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 };
+        IOException e = assertThrows(IOException.class,
+                () -> new GameRecordReader(new ByteArrayInputStream(fen)).read());
+        assertEquals("FEN length out of range: 2147483647", e.getMessage());
+
+        // the standard start position and a move count that would overflow the buffer growth
+        byte[] count = { 'C', 'G', 'R', '2', 0, 0, 0, 0, (byte) 0x81, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x04 };
+        e = assertThrows(IOException.class, () -> new GameRecordReader(new ByteArrayInputStream(count)).read());
+        assertEquals("Move count out of range: 1073741825", e.getMessage());
+
+        // a ten byte varint that decodes to a negative length
+        byte[] negative = { 'C', 'G', 'R', '2', 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01 };
+        e = assertThrows(IOException.class, () -> new GameRecordReader(new ByteArrayInputStream(negative)).read());
+        assertEquals("Move count out of range: -1", e.getMessage());
+    }
+
+    private static void play(Chess game, Random random, int plies) {
+        int[] moves = new int[256];
+        for (int ply = 0; ply < plies; ply++) {
+            int count = game.generateLegalMoves(moves);
+            if (count == 0) {
+                break;
+            }
+            game.move(moves[random.nextInt(count)], random.nextInt(4000));
+        }
+    }
+}
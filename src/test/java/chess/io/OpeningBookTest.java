@@ -0,0 +1,100 @@
+package chess.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.Chess;
+import chess.Position;
+
+class OpeningBookTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void everyPlayedMoveIsFoundWithItsCount() throws IOException {
+        Random random = new Random(6);
+        int[] legal = new int[256];
+        Chess[] games = new Chess[100];
+        OpeningBookWriter writer = new OpeningBookWriter();
+        for (int i = 0; i < games.length; i++) {
+            games[i] = Chess.fromFen(i % 2 == 0 ? Position.START_FEN
+                    : "r3k2r/pPpp1ppp/8/8/8/8/PPPP1PpP/R3K2R w KQkq - 0 1");
+            for (int ply = 0; ply < 12; ply++) {
+                int count = games[i].generateLegalMoves(legal);
+                if (count == 0) {
+                    break;
+                }
+                games[i].move(legal[random.nextInt(Math.min(count, 4))], 0);
+            }
+            writer.add(games[i], 12);
+        }
+        Path file = directory.resolve("book.bin");
+        writer.write(file);
+
+        OpeningBook book = OpeningBook.open(file);
+        int[] moves = new int[64];
+        int[] weights = new int[64];
+        for (Chess game : games) {
+            Chess replay = Chess.fromFen(game.getStartFen());
+            for (int ply = 0; ply < game.getMoveCount(); ply++) {
+                int move = game.getMove(ply);
+                assertTrue(book.weightOf(replay, move, moves, weights) > 0, "ply " + ply);
+                replay.move(move, 0);
+            }
+        }
+    }
+
+    @Test
+    void polyglotKeyedBooksAreReadWithTheirKeys() throws IOException {
+        PolyglotKeys keys = new PolyglotKeys(new Random(11).longs(PolyglotKeys.SIZE).toArray());
+        Chess game = new Chess();
+        game.move(1, 4, 3, 4);
+        game.move(6, 2, 4, 2);
+        game.move(0, 6, 2, 5);
+        OpeningBookWriter writer = new OpeningBookWriter(keys);
+        writer.add(game, 3);
+        Path file = directory.resolve("polyglot.bin");
+        writer.write(file);
+
+        int[] moves = new int[8];
+        int[] weights = new int[8];
+        Chess replay = new Chess();
+        OpeningBook book = OpeningBook.open(file, keys);
+        for (int ply = 0; ply < game.getMoveCount(); ply++) {
+            assertEquals(1, book.lookup(replay, moves, weights));
+            assertEquals(game.getMove(ply), moves[0]);
+            assertEquals(0, OpeningBook.open(file).lookup(replay, moves, weights));
+            replay.move(game.getMove(ply), 0);
+        }
+    }
+
+    @Test
+    void movesThatAreNotLegalAreLeftOut() throws IOException {
+        Chess game = new Chess();
+        Path file = directory.resolve("damaged.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            // e2e4, e2e5, the empty e4 to e5, e7e5 for the wrong side and a knight promotion of e2e4
+            for (int move : new int[] { 1 << 9 | 4 << 6 | 3 << 3 | 4, 1 << 9 | 4 << 6 | 4 << 3 | 4,
+                    3 << 9 | 4 << 6 | 4 << 3 | 4, 6 << 9 | 4 << 6 | 4 << 3 | 4,
+                    1 << 12 | 1 << 9 | 4 << 6 | 3 << 3 | 4 }) {
+                out.writeLong(game.getPositionHash());
+                out.writeShort(move);
+                out.writeShort(10);
+                out.writeInt(0);
+            }
+        }
+        int[] moves = new int[8];
+        int[] weights = new int[8];
+        assertEquals(1, OpeningBook.open(file).lookup(game, moves, weights));
+        assertEquals(game.encodeMove(1, 4, 3, 4, 0), moves[0]);
+    }
+}
@@ -0,0 +1,84 @@
+package chess.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.Chess;
+
+class OpeningExplorerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void statisticsMatchTheGamesAddedFromManyThreads() throws IOException {
+        Chess[] games = new Chess[400];
+        int[] results = new int[games.length];
+        Random random = new Random(11);
+        int[] legal = new int[256];
+        for (int i = 0; i < games.length; i++) {
+            games[i] = new Chess();
+            for (int ply = 0; ply < 8; ply++) {
+                int count = games[i].generateLegalMoves(legal);
+                games[i].move(legal[random.nextInt(Math.min(count, 3))], 0);
+            }
+            results[i] = random.nextInt(4);
+        }
+        Path file = directory.resolve("explorer.bin");
+        OpeningExplorer explorer = OpeningExplorer.create(file, 4000, 6);
+        IntStream.range(0, games.length).parallel().forEach(i -> explorer.add(games[i], results[i]));
+        explorer.force();
+
+        // expected counts by hash after each of the first six plies
+        Map<Long, int[]> expected = new HashMap<>();
+        for (int i = 0; i < games.length; i++) {
+            Chess replay = new Chess();
+            for (int ply = 0; ply <= 6; ply++) {
+                int[] stats = expected.computeIfAbsent(replay.getPositionHash(), key -> new int[4]);
+                stats[0]++;
+                if (results[i] != PgnReader.UNKNOWN) {
+                    stats[results[i]]++;
+                }
+                if (ply < 6) {
+                    replay.move(games[i].getMove(ply), 0);
+                }
+            }
+        }
+        OpeningExplorer reopened = OpeningExplorer.open(file);
+        assertEquals(expected.size(), reopened.size());
+        for (Map.Entry<Long, int[]> entry : expected.entrySet()) {
+            long found = reopened.find(entry.getKey());
+            assertEquals(entry.getValue()[0], reopened.getGames(found));
+            assertEquals(entry.getValue()[PgnReader.WHITE_WINS], reopened.getWhiteWins(found));
+            assertEquals(entry.getValue()[PgnReader.BLACK_WINS], reopened.getBlackWins(found));
+            assertEquals(entry.getValue()[PgnReader.DRAW], reopened.getDraws(found));
+        }
+
+        int[] moves = new int[OpeningExplorer.MOVES_PER_ENTRY];
+        int[] counts = new int[OpeningExplorer.MOVES_PER_ENTRY];
+        long start = reopened.find(new Chess());
+        assertEquals(3, reopened.getMoves(start, moves, counts));
+        assertEquals(games.length, counts[0] + counts[1] + counts[2]);
+        assertEquals(-1, reopened.find(12345L));
+    }
+
+    @Test
+    void aFullIndexRefusesNewPositions() throws IOException {
+        OpeningExplorer explorer = OpeningExplorer.create(directory.resolve("small.bin"), 2, 40);
+        Chess game = new Chess();
+        int[] legal = new int[256];
+        for (int ply = 0; ply < 20; ply++) {
+            game.move(legal[game.generateLegalMoves(legal) - 1], 0);
+        }
+        assertThrows(IllegalStateException.class, () -> explorer.add(game, PgnReader.DRAW));
+    }
+}
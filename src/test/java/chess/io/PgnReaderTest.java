@@ -0,0 +1,117 @@
+package chess.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.Chess;
+
+class PgnReaderTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void gamesSurviveARoundTrip() {
+        List<Chess> written = randomGames(30, 4);
+        StringBuilder pgn = new StringBuilder();
+        for (Chess game : written) {
+            append(pgn, game, "1/2-1/2");
+        }
+        List<Chess> read = new ArrayList<>();
+        List<Integer> results = new ArrayList<>();
+        PgnReader reader = new PgnReader();
+        ByteBuffer buffer = ByteBuffer.wrap(pgn.toString().getBytes());
+        assertEquals(written.size(), reader.read(buffer, 0, buffer.limit(), (game, result) -> {
+            read.add(game);
+            results.add(result);
+        }));
+        assertEquals(0, reader.getErrorCount());
+        for (int i = 0; i < written.size(); i++) {
+            assertMovesEqual(written.get(i), read.get(i));
+            assertEquals(PgnReader.DRAW, results.get(i));
+        }
+    }
+
+    @Test
+    void malformedGamesAreCountedPerRead() {
+        String pgn = "[Event \"ok\"]\n\n1. e4 e5 2. Nf3 1-0\n\n"
+                + "[Event \"illegal\"]\n\n1. e4 e4 0-1\n\n"
+                + "[Event \"bad fen\"]\n[FEN \"not a fen\"]\n\n1. e4 *\n\n"
+                + "[Event \"comments\"]\n\n1. d4 {a comment} d5 (1... Nf6 2. c4) 2. c4 $1 1/2-1/2\n";
+        PgnReader reader = new PgnReader();
+        List<Chess> games = new ArrayList<>();
+        assertEquals(2, reader.read(pgn, games::add));
+        assertEquals(2, reader.getErrorCount());
+        assertEquals(3, games.get(0).getMoveCount());
+        assertEquals(3, games.get(1).getMoveCount());
+
+        assertEquals(2, reader.read(pgn, game -> { }));
+        assertEquals(2, reader.getErrorCount());
+    }
+
+    @Test
+    void ingesterSplitsAFileIntoChunksWithoutLosingGames() throws IOException {
+        List<Chess> written = randomGames(200, 5);
+        StringBuilder pgn = new StringBuilder();
+        for (Chess game : written) {
+            append(pgn, game, "*");
+        }
+        pgn.append("[Event \"illegal\"]\n\n1. Ke2 *\n\n");
+        Path file = directory.resolve("games.pgn");
+        Files.writeString(file, pgn);
+
+        PgnIngester ingester = new PgnIngester(ForkJoinPool.commonPool(), 4096);
+        ConcurrentLinkedQueue<Chess> read = new ConcurrentLinkedQueue<>();
+        assertEquals(written.size(), ingester.ingest(file, read::add));
+        assertEquals(1, ingester.getErrorCount());
+        long expected = written.stream().mapToLong(game -> game.getMoveCount()).sum();
+        assertEquals(expected, read.stream().mapToLong(game -> game.getMoveCount()).sum());
+    }
+
+    @Test
+    void ingesterRejectsEmptyChunks() {
+        assertThrows(IllegalArgumentException.class, () -> new PgnIngester(ForkJoinPool.commonPool(), 0));
+    }
+
+    private static List<Chess> randomGames(int count, long seed) {
+        Random random = new Random(seed);
+        int[] moves = new int[256];
+        List<Chess> games = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Chess game = new Chess();
+            for (int ply = random.nextInt(80); ply > 0; ply--) {
+                int legal = game.generateLegalMoves(moves);
+                if (legal == 0) {
+                    break;
+                }
+                game.move(moves[random.nextInt(legal)], 0);
+            }
+            games.add(game);
+        }
+        return games;
+    }
+
+    private static void append(StringBuilder pgn, Chess game, String result) {
+        pgn.append("[Event \"random\"]\n[Result \"").append(result).append("\"]\n\n");
+        pgn.append(game.getMovesString()).append(' ').append(result).append("\n\n");
+    }
+
+    private static void assertMovesEqual(Chess expected, Chess actual) {
+        assertEquals(expected.getMoveCount(), actual.getMoveCount());
+        for (int i = 0; i < expected.getMoveCount(); i++) {
+            assertEquals(expected.getMove(i), actual.getMove(i));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package chess.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.Chess;
+import chess.Position;
+
+class PolyglotKeysTest {
+    private static final int WHITE_KING = 64 * 11;
+    private static final int BLACK_KING = 64 * 10;
+    private static final int WHITE_ROOK = 64 * 7;
+    private static final int BLACK_ROOK = 64 * 6;
+    private static final int WHITE_PAWN = 64;
+    private static final int BLACK_PAWN = 0;
+
+    @TempDir
+    Path directory;
+
+    private final long[] random64 = new Random(17).longs(PolyglotKeys.SIZE).toArray();
+    private final PolyglotKeys keys = new PolyglotKeys(random64);
+
+    @Test
+    void piecesCastlingAndTurnUseTheirBookFormatEntries() {
+        assertKey(random64[WHITE_KING + 4] ^ random64[BLACK_KING + 60] ^ random64[PolyglotKeys.TURN],
+                "4k3/8/8/8/8/8/8/4K3 w - - 0 1");
+        assertKey(random64[WHITE_KING + 4] ^ random64[BLACK_KING + 60], "4k3/8/8/8/8/8/8/4K3 b - - 0 1");
+        assertKey(random64[WHITE_KING + 4] ^ random64[BLACK_KING + 60] ^ random64[WHITE_ROOK]
+                ^ random64[WHITE_ROOK + 7] ^ random64[BLACK_ROOK + 56] ^ random64[BLACK_ROOK + 63]
+                ^ random64[768] ^ random64[769] ^ random64[770] ^ random64[771] ^ random64[PolyglotKeys.TURN],
+                "r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        assertKey(random64[WHITE_KING + 4] ^ random64[BLACK_KING + 60] ^ random64[WHITE_ROOK + 7]
+                ^ random64[BLACK_ROOK + 56] ^ random64[768] ^ random64[771], "r3k3/8/8/8/8/8/8/4K2R b Kq - 0 1");
+    }
+
+    @Test
+    void theEnPassantFileOnlyCountsWhenAPawnCanTake() {
+        long kings = random64[WHITE_KING + 4] ^ random64[BLACK_KING + 60];
+        // e2e4 next to a black pawn on d4, and next to none
+        assertKey(kings ^ random64[WHITE_PAWN + 28] ^ random64[BLACK_PAWN + 27] ^ random64[PolyglotKeys.EN_PASSANT + 4],
+                "4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 1");
+        assertKey(kings ^ random64[WHITE_PAWN + 28] ^ random64[BLACK_PAWN + 26], "4k3/8/8/8/2p1P3/8/8/4K3 b - e3 0 1");
+
+        Chess game = Chess.fromFen("4k3/8/8/8/3p4/8/4P3/4K3 w - - 0 1");
+        game.move(1, 4, 3, 4);
+        assertEquals(kings ^ random64[WHITE_PAWN + 28] ^ random64[BLACK_PAWN + 27]
+                ^ random64[PolyglotKeys.EN_PASSANT + 4], keys.key(game));
+    }
+
+    @Test
+    void theTableLoadsFromPolyglotSource() throws IOException {
+        StringBuilder source = new StringBuilder("const uint64 Random64[781] = {\n");
+        for (long value : random64) {
+            source.append(String.format("   U64(0x%016X),%n", value));
+        }
+        Path file = directory.resolve("random.cpp");
+        Files.writeString(file, source.append("};\n"));
+        Position position = Position.fromFen(Position.START_FEN);
+        assertEquals(keys.key(position), PolyglotKeys.load(file).key(position));
+
+        Files.writeString(file, "0x0123456789ABCDEF, 0x0123456789ABCDEF");
+        assertThrows(IOException.class, () -> PolyglotKeys.load(file));
+    }
+
+    // the published table is not vendored here; point -Dpolyglot.random64 at random.cpp or book_format.html
+    @Test
+    void publishedKeysMatchTheBookFormatDescription() throws IOException {
+        String table = System.getProperty("polyglot.random64");
+        assumeTrue(table != null, "set polyglot.random64 to a file with the Random64 table");
+        PolyglotKeys published = PolyglotKeys.load(Path.of(table));
+        Chess game = new Chess();
+        assertEquals(0x463b96181691fc9cL, published.key(game));
+        long[] expected = { 0x823c9b50fd114196L, 0x0756b94461c50fb0L, 0x662fafb965db29d4L, 0x22a48b5a8e47ff78L,
+                0x652a607ca3f242c1L, 0x00fdd303c946bdd9L };
+        int[][] moves = { { 1, 4, 3, 4 }, { 6, 3, 4, 3 }, { 3, 4, 4, 4 }, { 6, 5, 4, 5 }, { 0, 4, 1, 4 },
+                { 7, 4, 6, 5 } };
+        for (int i = 0; i < moves.length; i++) {
+            game.move(moves[i][0], moves[i][1], moves[i][2], moves[i][3]);
+            assertEquals(expected[i], published.key(game), "after move " + (i + 1));
+        }
+
+        game = new Chess();
+        for (int[] move : new int[][] { { 1, 0, 3, 0 }, { 6, 1, 4, 1 }, { 1, 7, 3, 7 }, { 4, 1, 3, 1 },
+                { 1, 2, 3, 2 } }) {
+            game.move(move[0], move[1], move[2], move[3]);
+        }
+        assertEquals(0x3c8123ea7b067637L, published.key(game));
+        game.move(3, 1, 2, 2);
+        game.move(0, 0, 1, 0);
+        assertEquals(0x5c3f9b829b279560L, published.key(game));
+    }
+
+    private void assertKey(long expected, String fen) {
+        assertEquals(expected, keys.key(Position.fromFen(fen)), fen);
+        assertEquals(expected, keys.key(Chess.fromFen(fen)), fen);
+    }
+}
@@ -0,0 +1,141 @@
+package chess.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import chess.Chess;
+import chess.TimeControl;
+import chess.server.GameRegistry;
+import chess.server.GameSession;
+
+class StateSyncTest {
+    private final AtomicLong now = new AtomicLong();
+    private final Random random = new Random(13);
+    private final int[] moves = new int[256];
+
+    @Test
+    void everyFrameLeavesTheDecoderOnTheGamesState() {
+        Chess game = new Chess(new TimeControl(300_000, 1000, 0), now::get);
+        StateSyncEncoder encoder = new StateSyncEncoder();
+        StateSyncDecoder decoder = new StateSyncDecoder();
+        assertTrue(decoder.apply(encoder.encode(game)));
+        assertMatches(game, decoder);
+        for (int ply = 0; ply < 200 && play(game, 1 + random.nextInt(3)); ply++) {
+            assertTrue(decoder.apply(encoder.encode(game)));
+            assertMatches(game, decoder);
+            assertEquals(game.getMove(game.getMoveCount() - 1), decoder.getLastMove());
+        }
+    }
+
+    @Test
+    void aDroppedFrameIsNoticedAndASnapshotResyncs() {
+        Chess game = new Chess(new TimeControl(300_000, 0, 0), now::get);
+        StateSyncEncoder encoder = new StateSyncEncoder();
+        StateSyncDecoder decoder = new StateSyncDecoder();
+        assertTrue(decoder.apply(encoder.encode(game)));
+        for (int round = 0; round < 20; round++) {
+            play(game, 1);
+            encoder.encode(game);
+            if (!play(game, 1)) {
+                break;
+            }
+            // the frame before this one never arrived
+            assertFalse(decoder.apply(encoder.encode(game)));
+            assertFalse(decoder.isSynced());
+            play(game, 1);
+            assertFalse(decoder.apply(encoder.encode(game)));
+
+            assertTrue(decoder.apply(encoder.snapshot()));
+            assertMatches(game, decoder);
+            play(game, 1);
+            assertTrue(decoder.apply(encoder.encode(game)));
+            assertMatches(game, decoder);
+        }
+    }
+
+    @Test
+    void spectatorsOfASessionResyncAfterALostFrame() {
+        GameSession session = new GameRegistry(Runnable::run, 64).register(new Chess(new TimeControl(60_000, 0, 0),
+                now::get));
+        StateSyncDecoder decoder = new StateSyncDecoder();
+        List<ByteBuffer> frames = new ArrayList<>();
+        session.watch(frames::add).join();
+        int[][] opening = { { 1, 4, 3, 4 }, { 6, 4, 4, 4 }, { 0, 6, 2, 5 }, { 7, 1, 5, 2 }, { 0, 5, 4, 1 } };
+        for (int[] move : opening) {
+            now.addAndGet(1_000_000_000L);
+            assertTrue(session.submitMove(move[0], move[1], move[2], move[3]).join());
+        }
+        assertEquals(opening.length + 1, frames.size());
+        for (int i = 0; i < frames.size(); i++) {
+            // the third frame is lost on the way
+            boolean applied = i != 2 && decoder.apply(frames.get(i));
+            assertEquals(i < 2, applied);
+        }
+        assertTrue(decoder.apply(session.resync().join()));
+        Chess game = session.submit(Chess::fork).join();
+        assertMatches(game, decoder);
+    }
+
+    @Test
+    void aThrowingSpectatorIsDroppedWithoutFailingTheMove() {
+        GameSession session = new GameRegistry(Runnable::run, 64).register(new Chess(new TimeControl(60_000, 0, 0),
+                now::get));
+        List<ByteBuffer> failing = new ArrayList<>();
+        List<ByteBuffer> frames = new ArrayList<>();
+        session.watch(frame -> {
+            failing.add(frame);
+            if (failing.size() > 1) {
+                throw new IllegalStateException("connection closed");
+            }
+        }).join();
+        session.watch(frames::add).join();
+
+        List<Throwable> reported = new ArrayList<>();
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler((t, e) -> reported.add(e));
+        try {
+            assertTrue(session.submitMove(1, 4, 3, 4).join());
+            assertTrue(session.submitMove(6, 4, 4, 4).join());
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+        assertEquals(1, reported.size());
+        assertEquals(2, failing.size());
+        assertEquals(3, frames.size());
+        StateSyncDecoder decoder = new StateSyncDecoder();
+        for (ByteBuffer frame : frames) {
+            assertTrue(decoder.apply(frame));
+        }
+        assertMatches(session.submit(Chess::fork).join(), decoder);
+    }
+
+    private boolean play(Chess game, int plies) {
+        for (int i = 0; i < plies; i++) {
+            int count = game.generateLegalMoves(moves);
+            if (count == 0) {
+                return false;
+            }
+            now.addAndGet(random.nextInt(3000) * 1_000_000L);
+            game.move(moves[random.nextInt(count)]);
+        }
+        return true;
+    }
+
+    private static void assertMatches(Chess game, StateSyncDecoder decoder) {
+        assertEquals(game.getMoveCount(), decoder.getMoveCount());
+        assertEquals(game.isWhiteTurn(), decoder.isWhiteTurn());
+        assertEquals(game.getTimeWhite(), decoder.getTimeWhite());
+        assertEquals(game.getTimeBlack(), decoder.getTimeBlack());
+        assertEquals(game.getBoardString(), decoder.getBoardString());
+    }
+}
@@ -0,0 +1,76 @@
+package chess.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.Chess;
+import chess.io.GameRecordWriter;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+// runs in its own surefire execution with -Dchess.instrumentation=true
+class InstrumentationTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void everyOperationReachesTheSinkAndFlightRecorder() throws IOException {
+        assertTrue(Instrumentation.ENABLED);
+        Metrics metrics = new Metrics();
+        Instrumentation.setSink(metrics);
+        Path file = directory.resolve("operations.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("chess.Operation");
+            recording.start();
+            Chess game = new Chess();
+            game.isValidAction(1, 4, 3, 4);
+            game.move(1, 4, 3, 4);
+            game.getGameState();
+            game.getBoardString();
+            new GameRecordWriter(new ByteArrayOutputStream()).write(game);
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            Instrumentation.setSink(null);
+        }
+
+        for (Operation operation : Operation.values()) {
+            assertTrue(metrics.getCount(operation) > 0, operation.name());
+        }
+        Map<Operation, Integer> recorded = new EnumMap<>(Operation.class);
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            assertEquals("chess.Operation", event.getEventType().getName());
+            assertFalse(event.hasField("startNanos"));
+            assertTrue(event.getDuration().toNanos() >= 0);
+            recorded.merge(Operation.valueOf(event.getString("operation")), 1, Integer::sum);
+        }
+        for (Operation operation : Operation.values()) {
+            assertEquals(metrics.getCount(operation), (long) recorded.getOrDefault(operation, 0), operation.name());
+        }
+    }
+
+    @Test
+    void histogramPercentilesStayWithinTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        long median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 50_000 && median <= 50_000 * 33 / 32, "median " + median);
+        long p99 = histogram.getValueAtPercentile(99);
+        assertTrue(p99 >= 99_000 && p99 <= 99_000 * 33 / 32, "p99 " + p99);
+    }
+}
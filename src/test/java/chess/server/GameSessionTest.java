@@ -0,0 +1,99 @@
+package chess.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import chess.Chess;
+import chess.GameState;
+import chess.TimeControl;
+import chess.io.GameJournal;
+
+class GameSessionTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void movesAreJournaledBeforeTheResultCompletes() throws IOException {
+        GameJournal journal = GameJournal.open(directory);
+        GameRegistry registry = new GameRegistry(Runnable::run, 8, null, null, journal);
+        GameSession session = registry.create(60);
+        assertTrue(session.submitMove(1, 4, 3, 4).join());
+        assertFalse(session.submitMove(1, 4, 3, 4).join());
+        assertTrue(session.submitMove(6, 4, 4, 4).join());
+        journal.close();
+
+        Chess recovered = GameJournal.recover(directory).get(session.getId());
+        assertEquals(2, recovered.getMoveCount());
+    }
+
+    @Test
+    void aMoveThatCannotBeJournaledIsStillPlayed() throws IOException {
+        GameJournal journal = GameJournal.open(directory);
+        GameRegistry registry = new GameRegistry(Runnable::run, 8, null, null, journal);
+        GameSession session = registry.create(60);
+        journal.close();
+
+        assertTrue(session.submitMove(1, 4, 3, 4).join());
+        assertEquals(1, session.submit(Chess::getMoveCount).join());
+    }
+
+    @Test
+    void aThrowingFlagListenerDoesNotStallTheGame() {
+        AtomicLong now = new AtomicLong();
+        TimerWheel wheel = new TimerWheel(now::get, 1_000_000);
+        GameRegistry registry = new GameRegistry(Runnable::run, 8, wheel, flagged -> {
+            throw new IllegalStateException("listener failed");
+        });
+        GameSession session = registry.register(new Chess(new TimeControl(1000, 0, 0), now::get));
+        GameSession other = registry.register(new Chess(new TimeControl(60_000, 0, 0), now::get));
+        assertTrue(session.submitMove(1, 4, 3, 4).join());
+
+        List<Throwable> reported = new ArrayList<>();
+        Thread thread = Thread.currentThread();
+        Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        thread.setUncaughtExceptionHandler((t, e) -> reported.add(e));
+        try {
+            now.addAndGet(2_000_000_000L);
+            wheel.advance();
+        } finally {
+            thread.setUncaughtExceptionHandler(handler);
+        }
+        assertEquals(1, reported.size());
+        assertEquals("listener failed", reported.get(0).getMessage());
+
+        // black ran out of time, so the session refuses moves but still runs them, as do other games
+        assertFalse(session.submitMove(6, 4, 4, 4).join());
+        assertEquals(GameState.FLAG, session.submit(Chess::getGameState).join());
+        assertEquals(0, session.getPendingCount());
+        assertTrue(other.submitMove(1, 4, 3, 4).join());
+    }
+
+    @Test
+    void actionsBeyondCapacityAreRejected() {
+        CompletableFuture<Runnable> parked = new CompletableFuture<>();
+        Executor executor = parked::complete;
+        GameSession session = new GameRegistry(executor, 2).create(60);
+        session.submit(Chess::getMoveCount);
+        session.submit(Chess::getMoveCount);
+        CompletableFuture<Integer> rejected = session.submit(Chess::getMoveCount);
+        CompletionException e = assertThrows(CompletionException.class, rejected::join);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+        parked.join().run();
+        assertEquals(0, session.getPendingCount());
+    }
+}
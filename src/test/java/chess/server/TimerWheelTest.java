@@ -0,0 +1,106 @@
+package chess.server;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import chess.Chess;
+import chess.GameState;
+import chess.TimeControl;
+
+class TimerWheelTest {
+    private static final long TICK = 1_000_000;
+    private static final long RANGE = 1L << 24;
+
+    private final AtomicLong now = new AtomicLong(123_456_789);
+    private final TimerWheel wheel = new TimerWheel(now::get, TICK);
+
+    // level boundaries of the wheel and delays beyond its range, which wait in the top level
+    @Test
+    void timeoutsFireOnTheirTickAfterLongDelays() {
+        long[] delays = { 1, 63, 64, 65, 4095, 4096, 4097, 262_143, 262_144, 262_150, RANGE - 1, RANGE, RANGE + 7,
+                3 * RANGE + 12_345 };
+        for (long offset : new long[] { 0, 1_000_003 }) {
+            advanceTo(tickNow() + offset);
+            long start = tickNow();
+            List<Long> fired = new ArrayList<>();
+            for (long delay : delays) {
+                wheel.schedule(delay * TICK, () -> fired.add(tickNow() - start));
+            }
+            for (int i = 0; i < delays.length; i++) {
+                advanceTo(start + delays[i] - 1);
+                assertEquals(i, fired.size(), "fired early before " + delays[i]);
+                advanceTo(start + delays[i]);
+                assertEquals(i + 1, fired.size(), "not fired at " + delays[i]);
+                assertEquals(delays[i], fired.get(i));
+            }
+            assertEquals(0, wheel.size());
+        }
+    }
+
+    @Test
+    void cancelledTimeoutsNeverFire() {
+        List<Integer> fired = new ArrayList<>();
+        TimerWheel.Timeout first = wheel.schedule(10 * TICK, () -> fired.add(1));
+        wheel.schedule(10 * TICK, () -> fired.add(2));
+        TimerWheel.Timeout late = wheel.schedule(5000 * TICK, () -> fired.add(3));
+        assertTrue(first.cancel());
+        assertFalse(first.cancel());
+        advanceTo(tickNow() + 10);
+        assertEquals(List.of(2), fired);
+        assertTrue(late.cancel());
+        advanceTo(tickNow() + 5000);
+        assertEquals(List.of(2), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void clocksFlagOnTheTimeSource() {
+        Chess game = new Chess(new TimeControl(1000, 200, 50), now::get);
+        now.addAndGet(1049 * TICK);
+        assertEquals(GameState.ONGOING, game.getGameState());
+        now.addAndGet(TICK);
+        assertEquals(GameState.FLAG, game.getGameState());
+        assertFalse(game.isValidAction(1, 4, 3, 4));
+
+        game = new Chess(new TimeControl(1000, 200, 50), now::get);
+        now.addAndGet(300 * TICK);
+        game.move(1, 4, 3, 4);
+        // 300ms less the 50ms delay, then the 200ms increment
+        assertEquals(1000 - 250 + 200, game.getTimeWhite());
+        now.addAndGet(1049 * TICK);
+        assertEquals(GameState.ONGOING, game.getGameState());
+        now.addAndGet(TICK);
+        assertEquals(GameState.FLAG, game.getGameState());
+    }
+
+    @Test
+    void sessionsReportTheFlagFromTheWheel() {
+        List<GameSession> flagged = new ArrayList<>();
+        GameRegistry registry = new GameRegistry(Runnable::run, 8, wheel, flagged::add);
+        GameSession session = registry.register(new Chess(new TimeControl(2000, 0, 0), now::get));
+        advanceTo(tickNow() + 500);
+        assertTrue(session.submitMove(1, 4, 3, 4).join());
+        advanceTo(tickNow() + 1999);
+        assertTrue(flagged.isEmpty());
+        advanceTo(tickNow() + 1);
+        assertEquals(List.of(session), flagged);
+        assertEquals(GameState.FLAG, session.submit(Chess::getGameState).join());
+        assertEquals(0, wheel.size());
+    }
+
+    private long tickNow() {
+        return (now.get() - 123_456_789) / TICK;
+    }
+
+    private void advanceTo(long tick) {
+        now.set(123_456_789 + tick * TICK);
+        wheel.advance();
+    }
+}